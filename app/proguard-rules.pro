@@ -18,4 +18,7 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+# ART reads @FastNative from the dex (build-time retention); keep it on natives.
+-keepattributes RuntimeInvisibleAnnotations
+-keep @interface dalvik.annotation.optimization.FastNative
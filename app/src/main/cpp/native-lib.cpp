@@ -1,140 +1,3101 @@
 #include <jni.h>
 #include <android/log.h>
+#include <android/sensor.h>
+#include <android/sharedmem.h>
+#include <algorithm>
 #include <array>
 #include <atomic>
 #include <thread>
+#include <vector>
 #include <chrono>
+#include <cstdlib>
 #include <cstring>
 #include <cmath>
+#include <cerrno>
+#include <ctime>
+#include <mutex>
+#include <condition_variable>
+#include <poll.h>
+#include <sys/ioctl.h>
+#include <sys/mman.h>
+#include <unistd.h>
+#include <linux/usbdevice_fs.h>
+#include <linux/usb/ch9.h>
 
 #define LOGI(...) __android_log_print(ANDROID_LOG_INFO, "ELRS", __VA_ARGS__)
 #define LOGD(...)              \
     if (g_debugLogging.load()) \
     __android_log_print(ANDROID_LOG_DEBUG, "ELRS_DEBUG", __VA_ARGS__)
 
-// ---- JNI bridge to UsbBridge.write(byte[],len,timeout) ----
+// ---- JNI bridge to UsbBridge.writeSlot(slot,len,timeout) / readSlot(slot,len,timeout) ----
 static JavaVM *g_vm = nullptr;
 static jclass g_bridgeClass = nullptr;
-static jmethodID g_write = nullptr;
+static jmethodID g_writeSlot = nullptr;
+static jmethodID g_readSlot = nullptr;
+
+// Direct ByteBuffer shared with UsbBridge.frameRing: kRingTxSlots outgoing
+// slots followed by kRingRxSlots incoming slots. Frames cross JNI through it
+// without allocating a Java array per call. Layout must match UsbBridge.
+constexpr int kRingSlotSize = 256;
+constexpr int kRingTxSlots = 8;
+constexpr int kRingRxSlots = 2;
+static uint8_t *g_frameRing = nullptr;
+static std::atomic<uint32_t> g_ringTxNext{0};
 
-static std::atomic<float> g_roll{0}, g_pitch{0}, g_yaw{0}, g_thr{0};
 static std::atomic<bool> g_run{false};
 static std::atomic<bool> g_armed{false};
 static std::atomic<bool> g_linkOk{false};
 static std::atomic<bool> g_safetyOverride{false};
 
-// Telemetry UI callback globals
-static jobject g_telemetryClass = nullptr;
-static jmethodID g_telemetryUICallback = nullptr;
+// Debug logging control
+static std::atomic<bool> g_debugLogging{false};
+
+// ---- Stick snapshot ----
+// All input channels plus the event timestamp are published together under a
+// seqlock, so the TX loop never builds a frame mixing two input events. The
+// writer bumps the sequence to odd, stores, then bumps it to even; readers
+// retry if the sequence was odd or moved while they copied. Writers claim the
+// odd sequence with a CAS, which never spins with the single input thread and
+// only serializes the rare emergency-stop write against it.
+constexpr int kStickChannels = 16;
+enum StickChannel
+{
+    STICK_ROLL,
+    STICK_PITCH,
+    STICK_YAW,
+    STICK_THR,
+};
+
+struct StickState
+{
+    float ch[kStickChannels];
+    int64_t eventNs; // MotionEvent time of the sample, CLOCK_MONOTONIC
+    uint32_t seq;
+};
+
+struct StickSnapshot
+{
+    std::atomic<uint32_t> seq{0};
+    std::atomic<float> ch[kStickChannels];
+    std::atomic<int64_t> eventNs{0};
+
+    StickSnapshot()
+    {
+        for (auto &c : ch)
+            c.store(0.0f, std::memory_order_relaxed);
+    }
+
+    // Stores channels [0, count); the rest keep their last value. Returns the
+    // snapshot number readers will see in StickState::seq.
+    uint32_t publish(const float *values, int count, int64_t stampNs)
+    {
+        uint32_t s = seq.load(std::memory_order_relaxed);
+        while ((s & 1) || !seq.compare_exchange_weak(s, s + 1, std::memory_order_acquire, std::memory_order_relaxed))
+            s = seq.load(std::memory_order_relaxed);
+        std::atomic_thread_fence(std::memory_order_release);
+        for (int i = 0; i < count && i < kStickChannels; i++)
+            ch[i].store(values[i], std::memory_order_relaxed);
+        eventNs.store(stampNs, std::memory_order_relaxed);
+        seq.store(s + 2, std::memory_order_release);
+        return (s + 2) >> 1;
+    }
+
+    void read(StickState &out) const
+    {
+        for (;;)
+        {
+            uint32_t s1 = seq.load(std::memory_order_acquire);
+            if (s1 & 1)
+                continue;
+            for (int i = 0; i < kStickChannels; i++)
+                out.ch[i] = ch[i].load(std::memory_order_relaxed);
+            out.eventNs = eventNs.load(std::memory_order_relaxed);
+            std::atomic_thread_fence(std::memory_order_acquire);
+            if (seq.load(std::memory_order_relaxed) == s1)
+            {
+                out.seq = s1 >> 1;
+                return;
+            }
+        }
+    }
+};
+
+// ---- Input history and resampling ----
+// Android batches joystick samples per display frame; every historical sample
+// is pushed here with its own timestamp. At each TX tick the stick axes are
+// evaluated at the send time: interpolated between bracketing samples, or
+// extrapolated from the last two, but only while the next sample is not yet
+// overdue (horizon <= last sample spacing). Joysticks report only on change,
+// so an old last sample means the stick is at rest and is held, not projected.
+// One ring per input source: single producer (that source's thread), single
+// consumer (TX thread).
+constexpr int kInputHistory = 32;  // power of two
+constexpr int kResampledAxes = 4;   // roll, pitch, yaw, throttle
+constexpr int64_t kMaxExtrapolateNs = 8000000;
+
+struct InputSample
+{
+    int64_t tNs;
+    uint32_t seq; // StickSnapshot number published with this sample
+    float v[kResampledAxes];
+};
+
+struct InputHistory
+{
+    InputSample ring[kInputHistory];
+    std::atomic<uint32_t> head{0}; // number of samples ever pushed
+
+    void push(uint32_t seq, int64_t tNs, const float *v)
+    {
+        uint32_t h = head.load(std::memory_order_relaxed);
+        InputSample &slot = ring[h & (kInputHistory - 1)];
+        slot.tNs = tNs;
+        slot.seq = seq;
+        for (int i = 0; i < kResampledAxes; i++)
+            slot.v[i] = v[i];
+        head.store(h + 1, std::memory_order_release);
+    }
+
+    // Copies up to `want` newest samples, oldest first. Retries if the producer
+    // lapped the copied slots meanwhile.
+    int latest(InputSample *out, int want) const
+    {
+        for (;;)
+        {
+            uint32_t h = head.load(std::memory_order_acquire);
+            int n = (int)std::min<uint32_t>(h, (uint32_t)want);
+            for (int i = 0; i < n; i++)
+                out[i] = ring[(h - n + i) & (kInputHistory - 1)];
+            std::atomic_thread_fence(std::memory_order_acquire);
+            if (head.load(std::memory_order_relaxed) - h <= uint32_t(kInputHistory - want))
+                return n;
+        }
+    }
+
+    // Overwrites axes with their value at targetNs when the snapshot being sent
+    // is the newest history sample (a publish without history, e.g. emergency
+    // stop, is used as-is). Returns false if nothing was resampled.
+    bool resample(uint32_t snapshotSeq, int64_t targetNs, float *axes) const
+    {
+        constexpr int kWindow = 8;
+        InputSample s[kWindow];
+        int n = latest(s, kWindow);
+        if (n == 0 || s[n - 1].seq != snapshotSeq)
+            return false;
+
+        const InputSample &last = s[n - 1];
+        if (targetNs >= last.tNs)
+        {
+            if (n < 2)
+                return false;
+            const InputSample &prev = s[n - 2];
+            int64_t spacing = last.tNs - prev.tNs;
+            int64_t horizon = targetNs - last.tNs;
+            if (spacing <= 0 || horizon > std::min(spacing, kMaxExtrapolateNs))
+                return false; // stick at rest: hold the last value
+            float k = float(horizon) / float(spacing);
+            for (int i = 0; i < kResampledAxes; i++)
+                axes[i] = last.v[i] + (last.v[i] - prev.v[i]) * k;
+        }
+        else
+        {
+            int i = n - 1;
+            while (i > 0 && s[i - 1].tNs > targetNs)
+                i--;
+            if (i == 0)
+                return false; // older than the whole window
+            const InputSample &a = s[i - 1], &b = s[i];
+            float k = b.tNs > a.tNs ? float(targetNs - a.tNs) / float(b.tNs - a.tNs) : 1.0f;
+            for (int c = 0; c < kResampledAxes; c++)
+                axes[c] = a.v[c] + (b.v[c] - a.v[c]) * k;
+        }
+        axes[STICK_ROLL] = std::clamp(axes[STICK_ROLL], -1.0f, 1.0f);
+        axes[STICK_PITCH] = std::clamp(axes[STICK_PITCH], -1.0f, 1.0f);
+        axes[STICK_YAW] = std::clamp(axes[STICK_YAW], -1.0f, 1.0f);
+        axes[STICK_THR] = std::clamp(axes[STICK_THR], 0.0f, 1.0f);
+        return true;
+    }
+};
+
+static std::atomic<bool> g_inputResample{true};
+
+// ---- Input sources and arbitration ----
+// Every producer of stick values (each gamepad, the touch sticks, the direct
+// HID reader) owns a slot with its own snapshot and history ring, so each ring
+// keeps a single producer. Once per tick the TX thread picks a winning slot per
+// axis: an explicit takeover wins the axes it provides; otherwise the highest
+// priority slot providing the axis that is not stale, ties going to the lower
+// slot index (registration order). If every candidate is stale the highest
+// priority one is held, so a quiet source never drops the sticks to zero.
+// The cost is a fixed kMaxInputSources x kResampledAxes scan, with no allocation.
+constexpr int kMaxInputSources = 8;
+constexpr int kAllAxesMask = (1 << kResampledAxes) - 1;
+
+enum SourceState
+{
+    SOURCE_FREE,
+    SOURCE_CLAIMED,
+    SOURCE_ACTIVE
+};
+
+// Per-source calibration as precomputed factors: raw v maps to
+// (v - centre) * (v < centre ? scaleNeg : scalePos). The throttle uses its
+// minimum as the centre with scaleNeg = 0, so one formula covers both kinds of
+// axis. Written on the UI thread (a known pad connecting, or a calibration run
+// finishing); the TX thread re-reads it only when seq changes.
+struct CalAxis
+{
+    float center, scaleNeg, scalePos;
+};
+
+struct SourceCalibration
+{
+    std::atomic<uint32_t> seq{0};
+    std::atomic<float> center[kResampledAxes], scaleNeg[kResampledAxes], scalePos[kResampledAxes];
+
+    void write(const CalAxis *axes)
+    {
+        uint32_t s = seq.load(std::memory_order_relaxed);
+        seq.store(s + 1, std::memory_order_relaxed);
+        std::atomic_thread_fence(std::memory_order_release);
+        for (int a = 0; a < kResampledAxes; a++)
+        {
+            center[a].store(axes[a].center, std::memory_order_relaxed);
+            scaleNeg[a].store(axes[a].scaleNeg, std::memory_order_relaxed);
+            scalePos[a].store(axes[a].scalePos, std::memory_order_relaxed);
+        }
+        seq.store(s + 2, std::memory_order_release);
+    }
+
+    uint32_t read(CalAxis *out) const
+    {
+        for (;;)
+        {
+            uint32_t s1 = seq.load(std::memory_order_acquire);
+            if (s1 & 1)
+                continue;
+            for (int a = 0; a < kResampledAxes; a++)
+                out[a] = CalAxis{center[a].load(std::memory_order_relaxed), scaleNeg[a].load(std::memory_order_relaxed),
+                                 scalePos[a].load(std::memory_order_relaxed)};
+            std::atomic_thread_fence(std::memory_order_acquire);
+            if (seq.load(std::memory_order_relaxed) == s1)
+                return s1;
+        }
+    }
+};
+
+// minCenterMax: [min, centre, max] per axis in raw units. A side with less than
+// 0.05 of travel keeps unit scale rather than exploding.
+static void compileCalibration(const float *minCenterMax, CalAxis *out)
+{
+    for (int a = 0; a < kResampledAxes; a++)
+    {
+        float lo = minCenterMax[a * 3], c = minCenterMax[a * 3 + 1], hi = minCenterMax[a * 3 + 2];
+        if (a == STICK_THR)
+            out[a] = CalAxis{lo, 0.0f, hi - lo > 0.05f ? 1.0f / (hi - lo) : 1.0f};
+        else
+            out[a] = CalAxis{c, c - lo > 0.05f ? 1.0f / (c - lo) : 1.0f, hi - c > 0.05f ? 1.0f / (hi - c) : 1.0f};
+    }
+}
+
+static const float kIdentityCalibration[kResampledAxes * 3] = {-1, 0, 1, -1, 0, 1, -1, 0, 1, 0, 0, 1};
+
+struct InputSource
+{
+    std::atomic<int> state{SOURCE_FREE};
+    std::atomic<int> priority{0};
+    std::atomic<int> axisMask{0};
+    std::atomic<int64_t> staleNs{0};    // 0 = never stale
+    std::atomic<int64_t> lastSeenNs{0}; // newest sample or heartbeat
+    std::atomic<bool> trackDrift{false}; // physical sticks whose centre may wander
+    StickSnapshot snap;
+    InputHistory history;
+    SourceCalibration cal;
+    std::atomic<float> liveCenter[kResampledAxes]; // drift-tracked centres (TX thread)
+    // Calibration run: raw extremes seen by the producer
+    std::atomic<bool> learning{false};
+    std::atomic<float> seenMin[kResampledAxes], seenMax[kResampledAxes];
+
+    // Producer thread only
+    void publish(const float *values, int64_t tNs)
+    {
+        uint32_t seq = snap.publish(values, kResampledAxes, tNs);
+        history.push(seq, tNs, values);
+        lastSeenNs.store(tNs, std::memory_order_relaxed);
+        if (learning.load(std::memory_order_relaxed))
+        {
+            for (int a = 0; a < kResampledAxes; a++)
+            {
+                seenMin[a].store(std::min(seenMin[a].load(std::memory_order_relaxed), values[a]), std::memory_order_relaxed);
+                seenMax[a].store(std::max(seenMax[a].load(std::memory_order_relaxed), values[a]), std::memory_order_relaxed);
+            }
+        }
+    }
+};
+
+static InputSource g_inputSources[kMaxInputSources];
+static std::atomic<int> g_inputTakeover{-1};
+static std::atomic<int> g_inputWinner[kResampledAxes] = {-1, -1, -1, -1}; // last tick's winners, -1 = none
+
+static inline bool inputSourceActive(int id)
+{
+    return id >= 0 && id < kMaxInputSources &&
+           g_inputSources[id].state.load(std::memory_order_acquire) == SOURCE_ACTIVE;
+}
+
+// Called on the thread that will produce for the slot (or before starting it).
+// A new slot starts centred with throttle at zero.
+static int registerInputSource(int priority, int axisMask, int64_t staleNs, bool trackDrift, int64_t nowNs)
+{
+    for (int i = 0; i < kMaxInputSources; i++)
+    {
+        int expected = SOURCE_FREE;
+        if (!g_inputSources[i].state.compare_exchange_strong(expected, SOURCE_CLAIMED))
+            continue;
+        InputSource &src = g_inputSources[i];
+        src.priority.store(priority, std::memory_order_relaxed);
+        src.axisMask.store(axisMask & kAllAxesMask, std::memory_order_relaxed);
+        src.staleNs.store(std::max<int64_t>(staleNs, 0), std::memory_order_relaxed);
+        src.trackDrift.store(trackDrift, std::memory_order_relaxed);
+        src.learning.store(false, std::memory_order_relaxed);
+        CalAxis identity[kResampledAxes];
+        compileCalibration(kIdentityCalibration, identity);
+        src.cal.write(identity);
+        for (auto &c : src.liveCenter)
+            c.store(0.0f, std::memory_order_relaxed);
+        const float rest[kResampledAxes] = {};
+        src.publish(rest, nowNs);
+        src.state.store(SOURCE_ACTIVE, std::memory_order_release);
+        return i;
+    }
+    return -1;
+}
+
+static void unregisterInputSource(int id)
+{
+    if (id < 0 || id >= kMaxInputSources)
+        return;
+    int expected = id;
+    g_inputTakeover.compare_exchange_strong(expected, -1);
+    g_inputSources[id].state.store(SOURCE_FREE, std::memory_order_release);
+}
+
+// Drift tracking (physical sticks only): while a stick rests near its centre
+// and barely moves, the centre follows it with a slow time constant, so worn
+// pots re-zero themselves. It never wanders further than kDriftMaxOffset from
+// the calibrated centre, so a stick held slightly off centre cannot drag it away.
+constexpr float kDriftBand = 0.06f;      // raw distance from centre that still counts as resting
+constexpr float kDriftSteadyPerS = 0.5f; // max raw change per second while resting
+constexpr float kDriftMaxOffset = 0.05f; // raw distance the centre may track from calibration
+constexpr float kDriftTauNs = 2.0e9f;
+
+// TX-thread side
+struct InputArbiter
+{
+    uint32_t sentSeq[kMaxInputSources] = {};
+    uint32_t pendingSeq[kMaxInputSources] = {};
+    uint32_t winnerMask = 0;     // sources that won an axis this tick
+    uint32_t lastWinnerMask = 0; // ... and on the previous tick
+    CalAxis cal[kMaxInputSources][kResampledAxes];
+    uint32_t calSeq[kMaxInputSources] = {};
+    bool calValid[kMaxInputSources] = {};
+    float drift[kMaxInputSources][kResampledAxes];
+    float lastRaw[kMaxInputSources][kResampledAxes] = {};
+    int64_t lastNs = 0;
+
+    void calibrate(int id, float *ch, int64_t dtNs)
+    {
+        InputSource &src = g_inputSources[id];
+        uint32_t seq = src.cal.seq.load(std::memory_order_acquire);
+        if (!calValid[id] || seq != calSeq[id])
+        {
+            bool rewritten = seq != calSeq[id];
+            calSeq[id] = src.cal.read(cal[id]);
+            calValid[id] = true;
+            for (int a = 0; a < kResampledAxes; a++)
+            {
+                // A new calibration starts from its own centre; otherwise resume
+                // from the centre tracked while the source last won
+                drift[id][a] = rewritten ? cal[id][a].center : src.liveCenter[a].load(std::memory_order_relaxed);
+                lastRaw[id][a] = ch[a];
+            }
+        }
+        bool track = dtNs > 0 && src.trackDrift.load(std::memory_order_relaxed);
+        float k = std::min(1.0f, float(dtNs) / kDriftTauNs);
+        float maxStep = kDriftSteadyPerS * float(dtNs) * 1e-9f;
+        for (int a = 0; a < kResampledAxes; a++)
+        {
+            float v = ch[a];
+            if (a != STICK_THR)
+            {
+                if (track && std::abs(v - drift[id][a]) < kDriftBand && std::abs(v - lastRaw[id][a]) < maxStep)
+                {
+                    float c = cal[id][a].center;
+                    drift[id][a] = std::clamp(drift[id][a] + (v - drift[id][a]) * k, c - kDriftMaxOffset,
+                                              c + kDriftMaxOffset);
+                }
+                lastRaw[id][a] = v;
+                src.liveCenter[a].store(drift[id][a], std::memory_order_relaxed);
+            }
+            float d = v - (a == STICK_THR ? cal[id][a].center : drift[id][a]);
+            float out = d * (d < 0.0f ? cal[id][a].scaleNeg : cal[id][a].scalePos);
+            ch[a] = a == STICK_THR ? std::clamp(out, 0.0f, 1.0f) : std::clamp(out, -1.0f, 1.0f);
+        }
+    }
+
+    // Fills axes from the per-axis winners (resampled to nowNs when enabled).
+    // Returns the newest event time among winners with samples not yet on the
+    // wire, 0 if none.
+    int64_t select(float *axes, int64_t nowNs)
+    {
+        int winner[kResampledAxes];
+        int takeover = g_inputTakeover.load(std::memory_order_relaxed);
+        int takeoverMask = inputSourceActive(takeover) ? g_inputSources[takeover].axisMask.load(std::memory_order_relaxed) : 0;
+        for (int a = 0; a < kResampledAxes; a++)
+        {
+            if ((takeoverMask >> a) & 1)
+            {
+                winner[a] = takeover;
+                continue;
+            }
+            int fresh = -1, any = -1, freshPri = 0, anyPri = 0;
+            for (int i = 0; i < kMaxInputSources; i++)
+            {
+                const InputSource &src = g_inputSources[i];
+                if (src.state.load(std::memory_order_acquire) != SOURCE_ACTIVE ||
+                    !((src.axisMask.load(std::memory_order_relaxed) >> a) & 1))
+                    continue;
+                int pri = src.priority.load(std::memory_order_relaxed);
+                if (any < 0 || pri > anyPri)
+                {
+                    any = i;
+                    anyPri = pri;
+                }
+                int64_t stale = src.staleNs.load(std::memory_order_relaxed);
+                bool live = stale == 0 || nowNs - src.lastSeenNs.load(std::memory_order_relaxed) <= stale;
+                if (live && (fresh < 0 || pri > freshPri))
+                {
+                    fresh = i;
+                    freshPri = pri;
+                }
+            }
+            winner[a] = fresh >= 0 ? fresh : any;
+        }
+
+        int64_t newInputNs = 0;
+        bool resample = g_inputResample.load(std::memory_order_relaxed);
+        int64_t dtNs = lastNs ? nowNs - lastNs : 0;
+        lastNs = nowNs;
+        winnerMask = 0;
+        for (int a = 0; a < kResampledAxes; a++)
+        {
+            g_inputWinner[a].store(winner[a], std::memory_order_relaxed);
+            int id = winner[a];
+            if (id < 0)
+            {
+                axes[a] = 0.0f; // no source at all: centred, throttle at zero
+                continue;
+            }
+            if (winnerMask & (1u << id))
+                continue; // already read for an earlier axis
+            winnerMask |= 1u << id;
+
+            StickState st;
+            g_inputSources[id].snap.read(st);
+            if (resample)
+                g_inputSources[id].history.resample(st.seq, nowNs, st.ch);
+            if (!(lastWinnerMask & (1u << id)))
+                calValid[id] = false; // slot may have been reused since it last won
+            calibrate(id, st.ch, dtNs);
+            for (int b = a; b < kResampledAxes; b++)
+                if (winner[b] == id)
+                    axes[b] = st.ch[b];
+            // A source that just won is not "new input": its samples may be old
+            if (!(lastWinnerMask & (1u << id)))
+                sentSeq[id] = st.seq;
+            else if (st.seq != sentSeq[id])
+                newInputNs = std::max(newInputNs, st.eventNs);
+            pendingSeq[id] = st.seq;
+        }
+        lastWinnerMask = winnerMask;
+        return newInputNs;
+    }
+
+    // After a frame made it out; a dropped frame leaves the samples for the next one
+    void commit()
+    {
+        for (int i = 0; i < kMaxInputSources; i++)
+            if (winnerMask & (1u << i))
+                sentSeq[i] = pendingSeq[i];
+    }
+};
+
+// ---- CRSF helpers ----
+static inline uint8_t crsf_crc8(const uint8_t *p, int n)
+{
+    uint8_t c = 0;
+    for (int i = 0; i < n; i++)
+    {
+        uint8_t b = uint8_t(p[i] ^ c);
+        for (int j = 0; j < 8; j++)
+            b = (b & 0x80) ? uint8_t((b << 1) ^ 0xD5) : uint8_t(b << 1);
+        c = b;
+    }
+    return c;
+}
+static inline uint16_t us2val(float us)
+{
+    float v = 172.f + (us - 1000.f) * ((1811.f - 172.f) / 1000.f);
+    if (v < 172)
+        v = 172;
+    if (v > 1811)
+        v = 1811;
+    return (uint16_t)v;
+}
+static inline uint16_t map_stick(float x) { return us2val(1500.f + x * 500.f); }
+static inline uint16_t map_thr(float t) { return us2val(1000.f + t * 1000.f); }
+// Mixer output -1..1 onto 172..1811, rounded so 0 lands on the 992 centre
+static inline uint16_t map_mix(float x)
+{
+    return (uint16_t)lroundf(std::clamp(991.5f + x * 819.5f, 172.0f, 1811.0f));
+}
+
+static void pack(const uint16_t ch[16], uint8_t out[22])
+{
+    uint32_t acc = 0;
+    int bits = 0, idx = 0;
+    for (int i = 0; i < 16; i++)
+    {
+        acc |= (uint32_t(ch[i] & 0x7FF) << bits);
+        bits += 11;
+        while (bits >= 8)
+        {
+            out[idx++] = (uint8_t)(acc & 0xFF);
+            acc >>= 8;
+            bits -= 8;
+        }
+    }
+    if (idx < 22)
+        out[idx] = (uint8_t)(acc & 0xFF);
+}
+static void build(const uint16_t ch[16], std::array<uint8_t, 26> &f)
+{
+    f[0] = 0xC8;
+    f[1] = 1 + 22 + 1;
+    f[2] = 0x16;
+    pack(ch, &f[3]);
+    f.back() = crsf_crc8(&f[2], 23);
+}
+
+// ---- Stick shaping ----
+// Deadzone, expo and rate per stick axis, and a multi-point throttle curve with
+// idle, are compiled into Q15 lookup tables when a profile is set. The TX thread
+// evaluates them once per tick with clamp + linear interpolation, so the cost
+// is fixed and independent of how the curve was described.
+constexpr int kLutSteps = 256; // intervals; tables hold kLutSteps + 1 points
+constexpr int kMaxThrottlePoints = 16;
+
+struct AxisShape
+{
+    float deadzone; // fraction of travel around centre reported as 0
+    float expo;     // 0 = linear, 1 = pure cubic
+    float rate;     // output scale at full deflection
+};
+
+struct ShapingProfile
+{
+    int16_t stick[3][kLutSteps + 1]; // roll, pitch, yaw: input -1..1
+    int16_t throttle[kLutSteps + 1]; // input 0..1
+};
+
+// Atomic-pointer publication for read-mostly state with a single reader (the
+// TX thread). The reader brackets its use with enter()/exit(); a writer swaps
+// the pointer and then waits for the reader to leave before freeing the old
+// value. Both sides use seq_cst so a reader that enters after the swap is
+// guaranteed to see the new pointer. The wait is bounded by one evaluation.
+template <typename T>
+struct HotSwap
+{
+    std::atomic<T *> current{nullptr};
+    std::atomic<bool> readerActive{false};
+    std::mutex writerMutex;
+
+    const T *enter()
+    {
+        readerActive.store(true);
+        return current.load();
+    }
+
+    void exit() { readerActive.store(false, std::memory_order_release); }
+
+    void publish(T *next)
+    {
+        std::lock_guard<std::mutex> lock(writerMutex);
+        T *old = current.exchange(next);
+        while (readerActive.load())
+            std::this_thread::yield();
+        delete old;
+    }
+};
+
+static HotSwap<ShapingProfile> g_shaping;
+
+static void compileStickLut(const AxisShape &shape, int16_t *lut)
+{
+    float dz = std::clamp(shape.deadzone, 0.0f, 0.9f);
+    float expo = std::clamp(shape.expo, 0.0f, 1.0f);
+    float rate = std::clamp(shape.rate, 0.0f, 1.0f);
+    for (int i = 0; i <= kLutSteps; i++)
+    {
+        float x = -1.0f + 2.0f * float(i) / kLutSteps;
+        float mag = std::max(0.0f, std::abs(x) - dz) / (1.0f - dz);
+        float y = (1.0f - expo) * mag + expo * mag * mag * mag;
+        y = std::copysign(y * rate, x);
+        lut[i] = (int16_t)std::lround(y * 32767.0f);
+    }
+}
+
+// points: throttle output at evenly spaced inputs 0..1 (2..kMaxThrottlePoints).
+// Input below the deadzone reads as 0; output is lifted so 0 maps to idle.
+static void compileThrottleLut(const float *points, int count, float deadzone, float idle, int16_t *lut)
+{
+    float dz = std::clamp(deadzone, 0.0f, 0.5f);
+    idle = std::clamp(idle, 0.0f, 0.5f);
+    for (int i = 0; i <= kLutSteps; i++)
+    {
+        float x = float(i) / kLutSteps;
+        x = std::max(0.0f, x - dz) / (1.0f - dz);
+        float pos = x * float(count - 1);
+        int seg = std::min(int(pos), count - 2);
+        float frac = pos - float(seg);
+        float curve = points[seg] + (points[seg + 1] - points[seg]) * frac;
+        float y = idle + (1.0f - idle) * std::clamp(curve, 0.0f, 1.0f);
+        lut[i] = (int16_t)std::lround(y * 32767.0f);
+    }
+}
+
+// x in -1..1 -> Q15 output, interpolated between table points
+static inline int32_t lutEval(const int16_t *lut, float x)
+{
+    int32_t q = (int32_t)((x + 1.0f) * (kLutSteps / 2) * 256.0f); // 8-bit fractional index
+    q = std::clamp<int32_t>(q, 0, kLutSteps * 256 - 1);
+    int32_t idx = q >> 8, frac = q & 0xFF;
+    return lut[idx] + (((lut[idx + 1] - lut[idx]) * frac) >> 8);
+}
+
+// Shapes roll/pitch/yaw (-1..1) and throttle (0..1) in place.
+static void applyShaping(float *axes)
+{
+    const ShapingProfile *profile = g_shaping.enter();
+    if (profile)
+    {
+        for (int i = 0; i < 3; i++)
+            axes[i] = float(lutEval(profile->stick[i], axes[i])) * (1.0f / 32767.0f);
+        axes[3] = float(lutEval(profile->throttle, axes[3] * 2.0f - 1.0f)) * (1.0f / 32767.0f);
+    }
+    g_shaping.exit();
+}
+
+static ShapingProfile *buildDefaultShaping()
+{
+    // Matches the previous behaviour: 5% stick deadzone, linear, full rate
+    auto *profile = new ShapingProfile;
+    const AxisShape linear{0.05f, 0.0f, 1.0f};
+    for (auto &lut : profile->stick)
+        compileStickLut(linear, lut);
+    const float straight[] = {0.0f, 1.0f};
+    compileThrottleLut(straight, 2, 0.0f, 0.0f, profile->throttle);
+    return profile;
+}
+
+// ---- Stick filters ----
+// Optional per-axis filter on the TX thread, run once per tick after
+// resampling and before shaping. Coefficients are derived from the TX period
+// in use and recomputed when it or the configuration changes. Each filter
+// reports its DC group delay at that rate:
+//   biquad     (b1 + 2 b2) / (b0 + b1 + b2) - (a1 + 2 a2) / (1 + a1 + a2) samples
+//   one-euro   (1 - alpha) / alpha samples at min cutoff (less while moving)
+//   median-3   1 sample on a ramp
+enum FilterType
+{
+    FILTER_NONE,
+    FILTER_ONE_EURO, // p1 = min cutoff Hz, p2 = beta, p3 = derivative cutoff Hz
+    FILTER_BIQUAD,   // p1 = cutoff Hz, p2 = Q
+    FILTER_MEDIAN3,
+};
+
+struct FilterSettings
+{
+    uint32_t version; // nonzero, bumped per publish (pointers may be reused)
+    int type[kResampledAxes];
+    float p[kResampledAxes][3];
+};
+
+static HotSwap<FilterSettings> g_filterSettings;
+static std::atomic<int64_t> g_filterDelayNs[kResampledAxes];
+
+static inline float emaAlpha(float cutoffHz, float dt)
+{
+    float tau = 1.0f / (2.0f * float(M_PI) * std::max(cutoffHz, 0.01f));
+    return 1.0f / (1.0f + tau / dt);
+}
+
+// Owned by the TX thread.
+struct AxisFilter
+{
+    int type = FILTER_NONE;
+    float p[3] = {};
+    // biquad
+    float b0 = 1, b1 = 0, b2 = 0, a1 = 0, a2 = 0;
+    float x1 = 0, x2 = 0, y1 = 0, y2 = 0;
+    // one-euro
+    float prevX = 0, prevY = 0, prevDx = 0;
+    // median
+    float m1 = 0, m2 = 0;
+    bool primed = false;
+
+    // Recomputes coefficients for dt; returns the DC group delay in samples.
+    float configure(float dt)
+    {
+        switch (type)
+        {
+        case FILTER_BIQUAD:
+        {
+            float fs = 1.0f / dt;
+            float fc = std::clamp(p[0], 0.5f, 0.45f * fs);
+            float q = std::max(p[1], 0.1f);
+            float w0 = 2.0f * float(M_PI) * fc / fs;
+            float cw = std::cos(w0), alpha = std::sin(w0) / (2.0f * q);
+            float a0 = 1.0f + alpha;
+            b0 = (1.0f - cw) / 2.0f / a0;
+            b1 = (1.0f - cw) / a0;
+            b2 = b0;
+            a1 = -2.0f * cw / a0;
+            a2 = (1.0f - alpha) / a0;
+            return (b1 + 2.0f * b2) / (b0 + b1 + b2) - (a1 + 2.0f * a2) / (1.0f + a1 + a2);
+        }
+        case FILTER_ONE_EURO:
+        {
+            float alpha = emaAlpha(p[0], dt);
+            return (1.0f - alpha) / alpha;
+        }
+        case FILTER_MEDIAN3:
+            return 1.0f;
+        default:
+            return 0.0f;
+        }
+    }
+
+    float run(float x, float dt)
+    {
+        if (!primed)
+        {
+            x1 = x2 = y1 = y2 = prevX = prevY = m1 = m2 = x;
+            prevDx = 0;
+            primed = true;
+        }
+        switch (type)
+        {
+        case FILTER_BIQUAD:
+        {
+            float y = b0 * x + b1 * x1 + b2 * x2 - a1 * y1 - a2 * y2;
+            x2 = x1;
+            x1 = x;
+            y2 = y1;
+            y1 = y;
+            return y;
+        }
+        case FILTER_ONE_EURO:
+        {
+            float dx = (x - prevX) / dt;
+            prevX = x;
+            prevDx += emaAlpha(p[2], dt) * (dx - prevDx);
+            float cutoff = p[0] + p[1] * std::abs(prevDx);
+            prevY += emaAlpha(cutoff, dt) * (x - prevY);
+            return prevY;
+        }
+        case FILTER_MEDIAN3:
+        {
+            float a = x, b = m1, c = m2;
+            m2 = m1;
+            m1 = x;
+            return std::max(std::min(a, b), std::min(std::max(a, b), c));
+        }
+        default:
+            return x;
+        }
+    }
+};
+
+struct FilterBank
+{
+    AxisFilter axis[kResampledAxes];
+    uint32_t appliedVersion = 0;
+    int64_t appliedPeriodNs = 0;
+
+    void run(float *axes, int64_t periodNs)
+    {
+        const FilterSettings *settings = g_filterSettings.enter();
+        uint32_t version = settings ? settings->version : 0;
+        if (version != appliedVersion || periodNs != appliedPeriodNs)
+        {
+            float dt = float(periodNs) * 1e-9f;
+            for (int i = 0; i < kResampledAxes; i++)
+            {
+                AxisFilter &f = axis[i];
+                int type = settings ? settings->type[i] : FILTER_NONE;
+                if (version != appliedVersion)
+                {
+                    f.primed = f.primed && f.type == type; // new filter type starts from the input
+                    f.type = type;
+                    for (int k = 0; k < 3; k++)
+                        f.p[k] = settings ? settings->p[i][k] : 0.0f;
+                }
+                g_filterDelayNs[i].store(int64_t(f.configure(dt) * float(periodNs)), std::memory_order_relaxed);
+            }
+            appliedVersion = version;
+            appliedPeriodNs = periodNs;
+        }
+        float dt = float(periodNs) * 1e-9f;
+        for (int i = 0; i < kResampledAxes; i++)
+            axes[i] = axis[i].run(axes[i], dt);
+        g_filterSettings.exit();
+    }
+};
+
+static FilterBank g_filterBank;
+
+// ---- IMU tilt (sensor direct channel) ----
+// The game rotation vector is delivered by the sensor HAL straight into an
+// ashmem region through a direct channel; no SensorEventListener and no Java
+// callback is involved. The TX thread reads the newest event from that memory
+// each tick, converts it to roll/pitch relative to a recentred reference and
+// blends it into the stick values.
+// Shared-memory events are 104-byte sensors_event_t records written as a ring;
+// the counter at offset 12 starts at 1 and increments with every event.
+constexpr int kImuEventSize = 104;
+constexpr int kImuRingEvents = 64;
+constexpr int kImuSharedSize = kImuEventSize * kImuRingEvents;
+
+enum ImuBlend
+{
+    IMU_BLEND_ADD,            // tilt added to the sticks, clamped
+    IMU_BLEND_STICK_PRIORITY, // tilt only on axes whose stick is centred
+};
+
+struct ImuChannel
+{
+    ASensorManager *manager = nullptr;
+    const ASensor *sensor = nullptr;
+    int fd = -1;
+    const uint8_t *mem = nullptr;
+    int channelId = 0;
+    int token = 0;
+
+    ~ImuChannel()
+    {
+        if (token > 0)
+            ASensorManager_configureDirectReport(manager, sensor, channelId, ASENSOR_DIRECT_RATE_STOP);
+        if (channelId > 0)
+            ASensorManager_destroyDirectChannel(manager, channelId);
+        if (mem)
+            munmap((void *)mem, kImuSharedSize);
+        if (fd >= 0)
+            close(fd);
+    }
+
+    // Newest event's quaternion (x, y, z, w); false if nothing has arrived.
+    bool latest(float *q, uint32_t &counter, int64_t &timestampNs) const
+    {
+        for (int attempt = 0; attempt < 3; attempt++)
+        {
+            int newest = -1;
+            uint32_t best = 0;
+            for (int i = 0; i < kImuRingEvents; i++)
+            {
+                uint32_t c = __atomic_load_n((const uint32_t *)(mem + i * kImuEventSize + 12), __ATOMIC_ACQUIRE);
+                if (c > best)
+                {
+                    best = c;
+                    newest = i;
+                }
+            }
+            if (newest < 0)
+                return false;
+            const uint8_t *e = mem + newest * kImuEventSize;
+            int32_t eventToken;
+            memcpy(&eventToken, e + 4, 4);
+            memcpy(&timestampNs, e + 16, 8);
+            memcpy(q, e + 24, 4 * sizeof(float));
+            std::atomic_thread_fence(std::memory_order_acquire);
+            // Re-check: the HAL may have lapped the ring while we copied
+            if (__atomic_load_n((const uint32_t *)(e + 12), __ATOMIC_RELAXED) == best && eventToken == token)
+            {
+                counter = best;
+                return true;
+            }
+        }
+        return false;
+    }
+};
+
+static HotSwap<ImuChannel> g_imuChannel;
+static std::atomic<float> g_imuFullScaleRad{0.5236f}; // 30 degrees of tilt = full stick
+static std::atomic<float> g_imuGain{1.0f};
+static std::atomic<float> g_imuLimit{1.0f};
+static std::atomic<int> g_imuBlend{IMU_BLEND_ADD};
+static std::atomic<bool> g_imuRecenter{false};
+static std::atomic<uint32_t> g_imuEvents{0};
+static std::atomic<float> g_imuRoll{0.0f}, g_imuPitch{0.0f};
+static std::atomic<int64_t> g_imuTimestampNs{0};
+
+static inline void quatMul(const float *a, const float *b, float *out) // (x, y, z, w)
+{
+    out[0] = a[3] * b[0] + a[0] * b[3] + a[1] * b[2] - a[2] * b[1];
+    out[1] = a[3] * b[1] - a[0] * b[2] + a[1] * b[3] + a[2] * b[0];
+    out[2] = a[3] * b[2] + a[0] * b[1] - a[1] * b[0] + a[2] * b[3];
+    out[3] = a[3] * b[3] - a[0] * b[0] - a[1] * b[1] - a[2] * b[2];
+}
+
+// TX-thread side: holds the reference orientation and blends tilt into the
+// stick values. Phone held in landscape facing the pilot: rotating it like a
+// steering wheel (device Z) is roll, tipping the top edge away (device Y) is
+// pitch. A negative gain flips both for the other landscape orientation.
+struct ImuTilt
+{
+    const ImuChannel *lastChannel = nullptr;
+    float refInv[4] = {0, 0, 0, 1};
+    bool haveRef = false;
+
+    void apply(float *axes)
+    {
+        const ImuChannel *ch = g_imuChannel.enter();
+        if (ch != lastChannel)
+        {
+            lastChannel = ch;
+            haveRef = false; // a new channel starts level where it is held
+        }
+        float q[4];
+        uint32_t counter;
+        int64_t ts;
+        bool fresh = ch && ch->latest(q, counter, ts);
+        g_imuChannel.exit();
+        if (!fresh)
+            return;
+
+        if (q[3] == 0.0f || std::abs(q[0] * q[0] + q[1] * q[1] + q[2] * q[2] + q[3] * q[3] - 1.0f) > 0.1f)
+        {
+            // Some HALs leave w at 0; rebuild it from the unit norm
+            float w2 = 1.0f - (q[0] * q[0] + q[1] * q[1] + q[2] * q[2]);
+            q[3] = w2 > 0.0f ? std::sqrt(w2) : 0.0f;
+        }
+        else if (q[3] < 0.0f)
+        {
+            // q and -q are the same rotation; keep w >= 0 so the vector part
+            // stays continuous with the reference
+            for (float &c : q)
+                c = -c;
+        }
+        if (!haveRef || g_imuRecenter.exchange(false))
+        {
+            refInv[0] = -q[0];
+            refInv[1] = -q[1];
+            refInv[2] = -q[2];
+            refInv[3] = q[3];
+            haveRef = true;
+        }
+
+        // Rotation since recentre, in the reference device frame, as a rotation vector
+        float rel[4];
+        quatMul(refInv, q, rel);
+        float vn = std::sqrt(rel[0] * rel[0] + rel[1] * rel[1] + rel[2] * rel[2]);
+        float scale = vn > 1e-6f ? 2.0f * std::atan2(vn, std::abs(rel[3])) / vn * (rel[3] < 0 ? -1.0f : 1.0f) : 2.0f;
+        float pitchRad = rel[1] * scale;
+        float rollRad = rel[2] * scale;
+
+        float k = g_imuGain.load(std::memory_order_relaxed) / std::max(0.02f, g_imuFullScaleRad.load(std::memory_order_relaxed));
+        float limit = std::clamp(g_imuLimit.load(std::memory_order_relaxed), 0.0f, 1.0f);
+        float roll = std::clamp(-rollRad * k, -limit, limit);
+        float pitch = std::clamp(pitchRad * k, -limit, limit);
+
+        if (g_imuBlend.load(std::memory_order_relaxed) == IMU_BLEND_STICK_PRIORITY)
+        {
+            if (std::abs(axes[STICK_ROLL]) < 0.05f)
+                axes[STICK_ROLL] = roll;
+            if (std::abs(axes[STICK_PITCH]) < 0.05f)
+                axes[STICK_PITCH] = pitch;
+        }
+        else
+        {
+            axes[STICK_ROLL] = std::clamp(axes[STICK_ROLL] + roll, -1.0f, 1.0f);
+            axes[STICK_PITCH] = std::clamp(axes[STICK_PITCH] + pitch, -1.0f, 1.0f);
+        }
+        g_imuEvents.store(counter, std::memory_order_relaxed);
+        g_imuRoll.store(roll, std::memory_order_relaxed);
+        g_imuPitch.store(pitch, std::memory_order_relaxed);
+        g_imuTimestampNs.store(ts, std::memory_order_relaxed);
+    }
+};
+static ImuTilt g_imuTilt;
+
+static ImuChannel *openImuChannel()
+{
+    auto *ch = new ImuChannel();
+    ch->manager = ASensorManager_getInstanceForPackage("com.example.elrsotg");
+    ch->sensor = ch->manager ? ASensorManager_getDefaultSensor(ch->manager, ASENSOR_TYPE_GAME_ROTATION_VECTOR) : nullptr;
+    if (!ch->sensor || !ASensor_isDirectChannelTypeSupported(ch->sensor, ASENSOR_DIRECT_CHANNEL_TYPE_SHARED_MEMORY))
+    {
+        LOGI("❌ IMU: game rotation vector with shared-memory direct channel not available");
+        delete ch;
+        return nullptr;
+    }
+    ch->fd = ASharedMemory_create("elrs_imu", kImuSharedSize);
+    void *mem = ch->fd >= 0 ? mmap(nullptr, kImuSharedSize, PROT_READ, MAP_SHARED, ch->fd, 0) : MAP_FAILED;
+    if (mem == MAP_FAILED)
+    {
+        LOGI("❌ IMU: shared memory setup failed (errno=%d)", errno);
+        delete ch;
+        return nullptr;
+    }
+    ch->mem = (const uint8_t *)mem;
+    ch->channelId = ASensorManager_createSharedMemoryDirectChannel(ch->manager, ch->fd, kImuSharedSize);
+    if (ch->channelId > 0)
+        ch->token = ASensorManager_configureDirectReport(ch->manager, ch->sensor, ch->channelId, ASENSOR_DIRECT_RATE_FAST);
+    if (ch->channelId <= 0 || ch->token <= 0)
+    {
+        LOGI("❌ IMU: direct channel failed (channel=%d token=%d)", ch->channelId, ch->token);
+        delete ch;
+        return nullptr;
+    }
+    LOGI("📱 IMU: direct channel %d streaming %s at RATE_FAST", ch->channelId, ASensor_getName(ch->sensor));
+    return ch;
+}
+
+// ---- Button events ----
+// Button edges travel from the input thread to the TX thread through a
+// lock-free SPSC queue with their event timestamps, so taps shorter than a TX
+// period are never lost to per-tick sampling. The TX thread applies debounce
+// and the per-button mode and produces the button mask the mixer sees. Every
+// accepted press is visible in at least one frame, even if it was released
+// before the tick that picked it up.
+constexpr int kButtonQueueSize = 64; // power of two
+
+struct ButtonEvent
+{
+    int64_t tNs;
+    uint8_t button;
+    bool down;
+};
+
+struct ButtonQueue
+{
+    ButtonEvent ring[kButtonQueueSize];
+    std::atomic<uint32_t> head{0}, tail{0};
+
+    bool push(const ButtonEvent &e)
+    {
+        uint32_t h = head.load(std::memory_order_relaxed);
+        if (h - tail.load(std::memory_order_acquire) >= kButtonQueueSize)
+            return false;
+        ring[h & (kButtonQueueSize - 1)] = e;
+        head.store(h + 1, std::memory_order_release);
+        return true;
+    }
+
+    bool pop(ButtonEvent &e)
+    {
+        uint32_t t = tail.load(std::memory_order_relaxed);
+        if (t == head.load(std::memory_order_acquire))
+            return false;
+        e = ring[t & (kButtonQueueSize - 1)];
+        tail.store(t + 1, std::memory_order_release);
+        return true;
+    }
+};
+
+enum ButtonMode
+{
+    BUTTON_MOMENTARY,  // on while held
+    BUTTON_TOGGLE,     // each press flips the output
+    BUTTON_LONG_PRESS, // on while held longer than the long-press time
+};
+
+static ButtonQueue g_buttonQueue;
+static std::atomic<uint64_t> g_buttonEvents{0}, g_buttonDropped{0};
+static std::atomic<int> g_buttonModes[32];
+static std::atomic<int64_t> g_buttonDebounceNs[32];
+static std::atomic<int64_t> g_buttonLongPressNs[32];
+
+// Owned by the TX thread.
+struct ButtonProcessor
+{
+    struct State
+    {
+        bool raw = false;     // last reported state
+        bool held = false;    // debounced state
+        bool output = false;  // toggle state
+        bool latched = false; // set by an edge, cleared once a frame carried it
+        int64_t edgeNs = 0;   // last accepted edge
+        int64_t downNs = 0;
+    } state[32];
+
+    void accept(int b, bool down, int64_t tNs)
+    {
+        State &st = state[b];
+        st.held = down;
+        st.edgeNs = tNs;
+        if (down)
+        {
+            st.downNs = tNs;
+            if (g_buttonModes[b].load(std::memory_order_relaxed) == BUTTON_TOGGLE)
+                st.output = !st.output;
+            else if (g_buttonModes[b].load(std::memory_order_relaxed) == BUTTON_MOMENTARY)
+                st.latched = true;
+        }
+        else if (g_buttonModes[b].load(std::memory_order_relaxed) == BUTTON_LONG_PRESS &&
+                 tNs - st.downNs >= g_buttonLongPressNs[b].load(std::memory_order_relaxed))
+        {
+            st.latched = true; // long press completed between ticks
+        }
+    }
+
+    uint32_t update(int64_t nowNs)
+    {
+        ButtonEvent e;
+        while (g_buttonQueue.pop(e))
+        {
+            if (e.button >= 32)
+                continue;
+            State &st = state[e.button];
+            st.raw = e.down;
+            // Edges inside the debounce window after the last accepted one are
+            // held back; the settled raw state is picked up below.
+            if (e.down != st.held &&
+                e.tNs - st.edgeNs >= g_buttonDebounceNs[e.button].load(std::memory_order_relaxed))
+                accept(e.button, e.down, e.tNs);
+        }
+
+        uint32_t mask = 0;
+        for (int b = 0; b < 32; b++)
+        {
+            State &st = state[b];
+            if (st.raw != st.held && nowNs - st.edgeNs >= g_buttonDebounceNs[b].load(std::memory_order_relaxed))
+                accept(b, st.raw, nowNs);
+
+            bool on;
+            switch (g_buttonModes[b].load(std::memory_order_relaxed))
+            {
+            case BUTTON_TOGGLE:
+                on = st.output;
+                break;
+            case BUTTON_LONG_PRESS:
+                on = (st.held && nowNs - st.downNs >= g_buttonLongPressNs[b].load(std::memory_order_relaxed)) ||
+                     st.latched;
+                break;
+            default:
+                on = st.held || st.latched;
+                break;
+            }
+            st.latched = false;
+            mask |= uint32_t(on) << b;
+        }
+        return mask;
+    }
+};
+
+static ButtonProcessor g_buttonProcessor;
+
+// ---- Channel mixer ----
+// Mixes are compiled into a flat instruction list that runs once per TX tick
+// over a source vector (shaped sticks, buttons, logical switches, telemetry,
+// constant 1). Logical switches write back into the source vector so later
+// instructions can use them as conditions or sources. Outputs are -1..1 per
+// CRSF channel (172..1811). Programs are swapped with HotSwap between frames.
+// The throttle gate clamps the throttle source before the mixer runs, and the
+// arm channel and throttle channel are forced again after it.
+constexpr int kMixChannels = 16;
+constexpr int kMixButtons = 32;
+constexpr int kMixSwitches = 16;
+constexpr int kMaxMixInstr = 128;
+constexpr int kArmChannel = 4;
+constexpr int kThrottleChannel = 2;
+
+enum MixSource
+{
+    SRC_AXIS = 0,                            // kStickChannels shaped inputs (throttle as -1..1)
+    SRC_BUTTON = SRC_AXIS + kStickChannels,  // kMixButtons, -1 released / +1 pressed
+    SRC_SWITCH = SRC_BUTTON + kMixButtons,   // kMixSwitches logical switch results
+    SRC_ARMED = SRC_SWITCH + kMixSwitches,   // -1 / +1
+    SRC_LINK_OK,                             // -1 / +1
+    SRC_LINK_QUALITY,                        // LQ 0..100% as -1..1
+    SRC_ONE,                                 // constant 1 (constants = weight on SRC_ONE)
+    SRC_COUNT
+};
+
+enum MixOp : uint8_t
+{
+    MIX_ADD,      // out += cond ? in*a + b : 0
+    MIX_MULTIPLY, // out *= cond ? in*a + b : 1
+    MIX_REPLACE,  // out  = cond ? in*a + b : out
+    LS_GREATER,   // sw = in > a
+    LS_LESS,      // sw = in < a
+    LS_AND,       // sw = in > 0 && in2 > 0
+    LS_OR,        // sw = in > 0 || in2 > 0
+    LS_NOT,       // sw = !(in > 0)
+    MIX_LIMIT,    // out = clamp(out, a, b)
+    MIX_OP_COUNT
+};
+
+struct MixInstr
+{
+    MixOp op;
+    uint8_t dst;  // channel (mix ops) or source slot (logical switches)
+    uint8_t src;  // source slot
+    uint8_t src2; // second operand (AND/OR) or condition slot (mix ops)
+    float a, b;
+};
+
+struct MixProgram
+{
+    int count = 0;
+    MixInstr code[kMaxMixInstr];
+};
+
+constexpr int axisSource(StickChannel axis) { return int(SRC_AXIS) + int(axis); }
+
+static HotSwap<MixProgram> g_mixer;
+static std::atomic<uint32_t> g_buttonMask{0}; // last mask sent, for status readers
+static std::atomic<int> g_linkQuality{0};
+
+static void runMixer(const MixProgram &program, float *in, float *out)
+{
+    for (int i = 0; i < kMixChannels; i++)
+        out[i] = 0.0f;
+    for (int i = 0; i < program.count; i++)
+    {
+        const MixInstr &m = program.code[i];
+        float v = in[m.src] * m.a + m.b;
+        bool on = in[m.src2] > 0.0f;
+        switch (m.op)
+        {
+        case MIX_ADD:
+            out[m.dst] += on ? v : 0.0f;
+            break;
+        case MIX_MULTIPLY:
+            out[m.dst] *= on ? v : 1.0f;
+            break;
+        case MIX_REPLACE:
+            out[m.dst] = on ? v : out[m.dst];
+            break;
+        case LS_GREATER:
+            in[m.dst] = in[m.src] > m.a ? 1.0f : -1.0f;
+            break;
+        case LS_LESS:
+            in[m.dst] = in[m.src] < m.a ? 1.0f : -1.0f;
+            break;
+        case LS_AND:
+            in[m.dst] = (in[m.src] > 0.0f && on) ? 1.0f : -1.0f;
+            break;
+        case LS_OR:
+            in[m.dst] = (in[m.src] > 0.0f || on) ? 1.0f : -1.0f;
+            break;
+        case LS_NOT:
+            in[m.dst] = in[m.src] > 0.0f ? -1.0f : 1.0f;
+            break;
+        case MIX_LIMIT:
+            out[m.dst] = std::clamp(out[m.dst], m.a, m.b);
+            break;
+        default:
+            break;
+        }
+    }
+}
+
+// Compiles switch/mix/limit tables into `program`. Switches come first in the
+// given order (a switch may use earlier ones), then mixes in order, then one
+// limit per channel. Returns false on any out-of-range index.
+//   switches: n x {func (0 GT,1 LT,2 AND,3 OR,4 NOT), srcA, srcB} + threshold
+//   mixes:    n x {channel, source, switchSource (-1 = always), mode (0 add, 1 multiply, 2 replace)}
+//             + {weight, offset}
+//   limits:   kMixChannels x {min, max}, or null for -1..1
+static bool compileMixer(const int *sw, const float *swThreshold, int swCount, const int *mix,
+                         const float *mixParams, int mixCount, const float *limits, MixProgram &program)
+{
+    if (swCount > kMixSwitches || swCount + mixCount + kMixChannels > kMaxMixInstr)
+        return false;
+    auto validSource = [](int s)
+    { return s >= 0 && s < SRC_COUNT; };
+
+    program.count = 0;
+    for (int i = 0; i < swCount; i++)
+    {
+        int func = sw[i * 3], a = sw[i * 3 + 1], b = sw[i * 3 + 2];
+        if (func < 0 || func > LS_NOT - LS_GREATER || !validSource(a) || !validSource(b))
+            return false;
+        program.code[program.count++] = MixInstr{MixOp(LS_GREATER + func), uint8_t(SRC_SWITCH + i), uint8_t(a),
+                                                 uint8_t(b), swThreshold[i], 0.0f};
+    }
+    for (int i = 0; i < mixCount; i++)
+    {
+        int ch = mix[i * 4], src = mix[i * 4 + 1], cond = mix[i * 4 + 2], mode = mix[i * 4 + 3];
+        if (cond < 0)
+            cond = SRC_ONE;
+        if (ch < 0 || ch >= kMixChannels || !validSource(src) || !validSource(cond) || mode < 0 ||
+            mode > MIX_REPLACE)
+            return false;
+        program.code[program.count++] = MixInstr{MixOp(mode), uint8_t(ch), uint8_t(src), uint8_t(cond),
+                                                 mixParams[i * 2], mixParams[i * 2 + 1]};
+    }
+    for (int ch = 0; ch < kMixChannels; ch++)
+    {
+        float lo = limits ? std::max(-1.0f, limits[ch * 2]) : -1.0f;
+        float hi = limits ? std::min(1.0f, limits[ch * 2 + 1]) : 1.0f;
+        if (lo > hi)
+            return false;
+        program.code[program.count++] = MixInstr{MIX_LIMIT, uint8_t(ch), SRC_ONE, SRC_ONE, lo, hi};
+    }
+    return true;
+}
+
+// AETR on 1-4, AUX1 from arm state, AUX2-4 and the rest centred
+static MixProgram *buildDefaultMixer()
+{
+    const int mixes[] = {
+        0, axisSource(STICK_ROLL), -1, MIX_ADD,
+        1, axisSource(STICK_PITCH), -1, MIX_ADD,
+        2, axisSource(STICK_THR), -1, MIX_ADD,
+        3, axisSource(STICK_YAW), -1, MIX_ADD,
+        kArmChannel, SRC_ARMED, -1, MIX_ADD};
+    const float params[] = {1, 0, 1, 0, 1, 0, 1, 0, 1, 0};
+    auto *program = new MixProgram;
+    compileMixer(nullptr, nullptr, 0, mixes, params, 5, nullptr, *program);
+    return program;
+}
+
+static JNIEnv *envGet()
+{
+    JNIEnv *env = nullptr;
+    if (g_vm->GetEnv((void **)&env, JNI_VERSION_1_6) != JNI_OK)
+        g_vm->AttachCurrentThread(&env, nullptr);
+    return env;
+}
+
+// ---- Timing helpers ----
+static inline int64_t monoNowNs()
+{
+    timespec ts;
+    clock_gettime(CLOCK_MONOTONIC, &ts);
+    return int64_t(ts.tv_sec) * 1000000000LL + ts.tv_nsec;
+}
+
+static inline void sleepUntilNs(int64_t deadlineNs)
+{
+    timespec ts;
+    ts.tv_sec = time_t(deadlineNs / 1000000000LL);
+    ts.tv_nsec = long(deadlineNs % 1000000000LL);
+    while (clock_nanosleep(CLOCK_MONOTONIC, TIMER_ABSTIME, &ts, nullptr) == EINTR)
+    {
+    }
+}
+
+// Fixed-bin latency/period histogram. Single writer, any number of readers;
+// everything is relaxed atomics so readers never block the writer.
+template <int Bins>
+struct Histogram
+{
+    const int64_t binWidthNs;
+    std::atomic<uint32_t> counts[Bins];
+    std::atomic<uint64_t> count{0};
+    std::atomic<int64_t> sumNs{0};
+    std::atomic<int64_t> minNs{INT64_MAX};
+    std::atomic<int64_t> maxNs{0};
+
+    explicit Histogram(int64_t binWidth) : binWidthNs(binWidth) { reset(); }
+
+    void reset()
+    {
+        for (auto &c : counts)
+            c.store(0, std::memory_order_relaxed);
+        count.store(0, std::memory_order_relaxed);
+        sumNs.store(0, std::memory_order_relaxed);
+        minNs.store(INT64_MAX, std::memory_order_relaxed);
+        maxNs.store(0, std::memory_order_relaxed);
+    }
+
+    void record(int64_t ns)
+    {
+        if (ns < 0)
+            ns = 0;
+        int64_t bin = ns / binWidthNs;
+        if (bin >= Bins)
+            bin = Bins - 1; // last bin collects overflow
+        counts[bin].fetch_add(1, std::memory_order_relaxed);
+        count.fetch_add(1, std::memory_order_relaxed);
+        sumNs.fetch_add(ns, std::memory_order_relaxed);
+        if (ns < minNs.load(std::memory_order_relaxed))
+            minNs.store(ns, std::memory_order_relaxed);
+        if (ns > maxNs.load(std::memory_order_relaxed))
+            maxNs.store(ns, std::memory_order_relaxed);
+    }
+
+    // Upper edge of the bin containing the p-th percentile (0..100)
+    int64_t percentileNs(double p) const
+    {
+        uint64_t total = count.load(std::memory_order_relaxed);
+        if (total == 0)
+            return 0;
+        uint64_t target = uint64_t(std::ceil(double(total) * p / 100.0));
+        if (target == 0)
+            target = 1;
+        uint64_t seen = 0;
+        for (int i = 0; i < Bins; i++)
+        {
+            seen += counts[i].load(std::memory_order_relaxed);
+            if (seen >= target)
+                return std::min<int64_t>(int64_t(i + 1) * binWidthNs, maxNs.load(std::memory_order_relaxed));
+        }
+        return maxNs.load(std::memory_order_relaxed);
+    }
+
+    int64_t meanNs() const
+    {
+        uint64_t n = count.load(std::memory_order_relaxed);
+        return n ? sumNs.load(std::memory_order_relaxed) / int64_t(n) : 0;
+    }
+};
+
+// ---- Input-to-wire latency ----
+// Each stick snapshot carries its MotionEvent timestamp, which is on
+// CLOCK_MONOTONIC like monoNowNs(). The first TX frame containing that update
+// hands the stamp to the transport, and the transport records the gap once the
+// OUT transfer has completed on the bus. Updates superseded before the next
+// tick never reach the wire and are not counted.
+static Histogram<2048> g_inputLatencyHist(50000); // 50 us bins, ~100 ms range
+
+// The on-screen sticks get their own histogram. A frame is attributed to touch
+// when its stamp is the one the touch view published last; a touch sample
+// superseded by a newer one before its frame completes is simply not counted.
+static Histogram<2048> g_touchLatencyHist(50000);
+static std::atomic<int64_t> g_touchLastEventNs{0};
+
+static inline void recordInputToWire(int64_t inputEventNs, int64_t completeNs)
+{
+    if (inputEventNs > 0 && completeNs >= inputEventNs)
+    {
+        g_inputLatencyHist.record(completeNs - inputEventNs);
+        if (inputEventNs == g_touchLastEventNs.load(std::memory_order_relaxed))
+            g_touchLatencyHist.record(completeNs - inputEventNs);
+    }
+}
+
+// ---- USB transport ----
+// When UsbBridge hands us the connection's file descriptor, bulk transfers are
+// issued directly with usbfs ioctls and never touch the JVM. Java keeps
+// permission, interface claim and CP210x init; without an fd we fall back to
+// calling UsbBridge.write/read through JNI.
+static std::atomic<int> g_usbfsFd{-1};
+static uint8_t g_usbfsEpOut = 0, g_usbfsEpIn = 0;
+static int g_usbfsMaxPacketOut = 64, g_usbfsMaxPacketIn = 64;
+static std::mutex g_usbfsWriteMutex, g_usbfsReadMutex;
+
+static int usbfsBulk(int fd, uint8_t ep, void *data, int len, int timeoutMs)
+{
+    usbdevfs_bulktransfer bt{};
+    bt.ep = ep;
+    bt.len = (unsigned int)len;
+    bt.timeout = (unsigned int)timeoutMs;
+    bt.data = data;
+    return ioctl(fd, USBDEVFS_BULK, &bt);
+}
+
+// ---- Asynchronous bulk OUT (URB pipeline) ----
+// Frames are submitted as usbfs URBs with up to kUrbWindow in flight, so the
+// TX thread hands off a frame and goes straight back to sleep. A reaper thread
+// polls the fd for completions and records true submit->complete latency.
+constexpr int kUrbWindow = 4;
+constexpr int kUrbBufferSize = 256;
+
+struct UrbSlot
+{
+    uint8_t buffer[kUrbBufferSize];
+    int64_t submitNs = 0;
+    int64_t inputEventNs = 0; // stick sample carried by this frame, 0 if none
+    std::atomic<bool> inFlight{false};
+    usbdevfs_urb urb; // last: ends in a flexible iso_frame_desc array
+};
+
+static UrbSlot g_outUrbs[kUrbWindow];
+static int g_outUrbNext = 0; // guarded by g_usbfsWriteMutex
+static std::atomic<bool> g_usbfsAsyncOut{true};
+static std::atomic<bool> g_reaperRun{false};
+static std::thread g_reaperThread;
+
+static Histogram<2048> g_urbLatencyHist(10000); // 10 us bins, ~20 ms range
+static std::atomic<uint64_t> g_urbSubmitted{0}, g_urbCompleted{0}, g_urbErrors{0}, g_urbWindowFull{0};
+
+// ---- Asynchronous bulk IN ----
+// kInUrbs reads of one max packet each stay queued on the IN endpoint at all
+// times. Completions are reaped by the same reaper thread as OUT (usbfs hands
+// back any finished URB, so there can only be one reaper); the data goes into
+// a chunk ring, the URB is resubmitted at once and the telemetry thread is
+// woken. No read ever sits idle waiting for a timeout or a sleep.
+constexpr int kInUrbs = 4;
+constexpr int kInUrbBufferSize = 512;
+constexpr int kInChunks = 32; // power of two
+
+struct InUrb
+{
+    uint8_t buffer[kInUrbBufferSize];
+    std::atomic<bool> inFlight{false};
+    usbdevfs_urb urb; // last: ends in a flexible iso_frame_desc array
+};
+
+struct InChunk
+{
+    int len;
+    uint8_t data[kInUrbBufferSize];
+};
+
+static InUrb g_inUrbs[kInUrbs];
+static std::atomic<bool> g_inUrbsActive{false};
+static InChunk g_inChunks[kInChunks];
+static std::atomic<uint32_t> g_inChunkHead{0}, g_inChunkTail{0}; // reaper produces, telemetry consumes
+static std::atomic<uint32_t> g_inChunkGeneration{0}; // bumped when the pipeline restarts
+// Telemetry thread: bytes of the tail chunk already returned, and the
+// generation they belong to
+static int g_inChunkOffset = 0;
+static uint32_t g_inChunkOffsetGeneration = 0;
+static std::mutex g_inWaitMutex;
+static std::condition_variable g_inWaitCv;
+static std::atomic<uint64_t> g_inCompleted{0}, g_inErrors{0}, g_inOverflow{0};
+
+static bool urbSubmitIn(int fd, InUrb &in)
+{
+    memset(&in.urb, 0, sizeof(in.urb));
+    in.urb.type = USBDEVFS_URB_TYPE_BULK;
+    in.urb.endpoint = g_usbfsEpIn;
+    in.urb.buffer = in.buffer;
+    in.urb.buffer_length = std::min(g_usbfsMaxPacketIn, kInUrbBufferSize);
+    in.urb.usercontext = &in;
+    in.inFlight.store(true, std::memory_order_release);
+    if (ioctl(fd, USBDEVFS_SUBMITURB, &in.urb) < 0)
+    {
+        in.inFlight.store(false, std::memory_order_release);
+        g_inErrors.fetch_add(1, std::memory_order_relaxed);
+        LOGD("⚠️ URB_IN_SUBMIT_FAILED: errno=%d (%s)", errno, strerror(errno));
+        return false;
+    }
+    return true;
+}
+
+static void urbCompleteIn(int fd, InUrb &in)
+{
+    const usbdevfs_urb &urb = in.urb;
+    if (urb.status == 0 && urb.actual_length > 0)
+    {
+        uint32_t head = g_inChunkHead.load(std::memory_order_relaxed);
+        if (head - g_inChunkTail.load(std::memory_order_acquire) < kInChunks)
+        {
+            InChunk &chunk = g_inChunks[head & (kInChunks - 1)];
+            chunk.len = urb.actual_length;
+            memcpy(chunk.data, in.buffer, urb.actual_length);
+            g_inChunkHead.store(head + 1, std::memory_order_release);
+            {
+                std::lock_guard<std::mutex> lock(g_inWaitMutex);
+            }
+            g_inWaitCv.notify_one();
+        }
+        else
+        {
+            g_inOverflow.fetch_add(1, std::memory_order_relaxed);
+        }
+        g_inCompleted.fetch_add(1, std::memory_order_relaxed);
+    }
+    else if (urb.status != 0 && urb.status != -ENOENT && urb.status != -ECONNRESET)
+    {
+        g_inErrors.fetch_add(1, std::memory_order_relaxed);
+        LOGD("⚠️ URB_IN_ERROR: status=%d", urb.status);
+    }
+    in.inFlight.store(false, std::memory_order_release);
+    // Discarded (stopping) or device gone: leave it unqueued
+    bool gone = urb.status == -ENOENT || urb.status == -ECONNRESET || urb.status == -ESHUTDOWN || urb.status == -ENODEV;
+    if (!gone && g_inUrbsActive.load(std::memory_order_acquire))
+        urbSubmitIn(fd, in);
+}
+
+// Telemetry thread: waits for completed IN data up to timeoutMs and returns
+// as many queued bytes as fit, 0 on timeout. A chunk larger than the space
+// left is split across calls, so any capacity makes progress.
+static int urbReadIn(uint8_t *buffer, int capacity, int timeoutMs)
+{
+    auto ready = [] { return g_inChunkHead.load(std::memory_order_acquire) != g_inChunkTail.load(std::memory_order_relaxed); };
+    if (!ready())
+    {
+        std::unique_lock<std::mutex> lock(g_inWaitMutex);
+        g_inWaitCv.wait_for(lock, std::chrono::milliseconds(timeoutMs), ready);
+    }
+    uint32_t generation = g_inChunkGeneration.load(std::memory_order_acquire);
+    if (generation != g_inChunkOffsetGeneration)
+    {
+        // Restarted since the last read: a partly read chunk is gone
+        g_inChunkOffsetGeneration = generation;
+        g_inChunkOffset = 0;
+    }
+    int n = 0;
+    uint32_t tail = g_inChunkTail.load(std::memory_order_relaxed);
+    while (tail != g_inChunkHead.load(std::memory_order_acquire))
+    {
+        const InChunk &chunk = g_inChunks[tail & (kInChunks - 1)];
+        if (g_inChunkOffset >= chunk.len)
+        {
+            g_inChunkOffset = 0; // consumed
+            tail++;
+            continue;
+        }
+        int take = std::min(chunk.len - g_inChunkOffset, capacity - n);
+        if (take <= 0)
+            break; // caller's buffer is full
+        memcpy(buffer + n, chunk.data + g_inChunkOffset, take);
+        n += take;
+        g_inChunkOffset += take;
+        if (g_inChunkOffset < chunk.len)
+            break; // buffer full mid-chunk; the rest comes on the next call
+        g_inChunkOffset = 0;
+        tail++;
+    }
+    g_inChunkTail.store(tail, std::memory_order_release);
+    return n;
+}
+
+static int urbInFlightCount()
+{
+    int n = 0;
+    for (auto &slot : g_outUrbs)
+        n += slot.inFlight.load(std::memory_order_acquire) ? 1 : 0;
+    return n;
+}
+
+// Caller holds g_usbfsWriteMutex. Returns bytes queued, or -1 if the window is
+// full or the submit failed. A full window drops the frame: the next tick
+// builds a fresh one, which is better than blocking or sending stale data.
+static int urbSubmitOut(int fd, const uint8_t *data, int len, int64_t inputEventNs)
+{
+    if (len > kUrbBufferSize)
+        return -1;
+
+    UrbSlot *slot = nullptr;
+    for (int i = 0; i < kUrbWindow; i++)
+    {
+        UrbSlot &candidate = g_outUrbs[(g_outUrbNext + i) % kUrbWindow];
+        if (!candidate.inFlight.load(std::memory_order_acquire))
+        {
+            slot = &candidate;
+            g_outUrbNext = (g_outUrbNext + i + 1) % kUrbWindow;
+            break;
+        }
+    }
+    if (!slot)
+    {
+        g_urbWindowFull.fetch_add(1, std::memory_order_relaxed);
+        return -1;
+    }
+
+    memcpy(slot->buffer, data, len);
+    memset(&slot->urb, 0, sizeof(slot->urb));
+    slot->urb.type = USBDEVFS_URB_TYPE_BULK;
+    slot->urb.endpoint = g_usbfsEpOut;
+    slot->urb.buffer = slot->buffer;
+    slot->urb.buffer_length = len;
+    slot->urb.usercontext = slot;
+    slot->submitNs = monoNowNs();
+    slot->inputEventNs = inputEventNs;
+    slot->inFlight.store(true, std::memory_order_release);
+
+    if (ioctl(fd, USBDEVFS_SUBMITURB, &slot->urb) < 0)
+    {
+        slot->inFlight.store(false, std::memory_order_release);
+        g_urbErrors.fetch_add(1, std::memory_order_relaxed);
+        LOGD("⚠️ URB_SUBMIT_FAILED: errno=%d (%s)", errno, strerror(errno));
+        return -1;
+    }
+    g_urbSubmitted.fetch_add(1, std::memory_order_relaxed);
+    return len;
+}
+
+static void reapCompletedUrbs(int fd)
+{
+    usbdevfs_urb *done = nullptr;
+    while (ioctl(fd, USBDEVFS_REAPURBNDELAY, &done) == 0 && done)
+    {
+        if (done->endpoint & USB_DIR_IN)
+        {
+            urbCompleteIn(fd, *static_cast<InUrb *>(done->usercontext));
+            done = nullptr;
+            continue;
+        }
+        auto *slot = static_cast<UrbSlot *>(done->usercontext);
+        int64_t now = monoNowNs();
+        g_urbLatencyHist.record(now - slot->submitNs);
+        if (done->status == 0)
+            recordInputToWire(slot->inputEventNs, now);
+        if (done->status != 0 || done->actual_length != done->buffer_length)
+        {
+            g_urbErrors.fetch_add(1, std::memory_order_relaxed);
+            LOGD("⚠️ URB_COMPLETE_ERROR: status=%d actual=%d/%d", done->status, done->actual_length,
+                 done->buffer_length);
+        }
+        g_urbCompleted.fetch_add(1, std::memory_order_relaxed);
+        slot->inFlight.store(false, std::memory_order_release);
+        done = nullptr;
+    }
+}
+
+static void urbReaperLoop(int fd)
+{
+    while (g_reaperRun.load())
+    {
+        // usbfs reports POLLOUT once a submitted URB has completed
+        pollfd pfd{fd, POLLOUT, 0};
+        int r = poll(&pfd, 1, 20);
+        if (r > 0 && (pfd.revents & (POLLERR | POLLHUP)))
+            break;
+        if (r > 0)
+            reapCompletedUrbs(fd);
+    }
+}
+
+static void urbPipelineStart(int fd)
+{
+    for (auto &slot : g_outUrbs)
+        slot.inFlight.store(false);
+    g_outUrbNext = 0;
+    g_inChunkTail.store(g_inChunkHead.load());
+    g_inChunkGeneration.fetch_add(1, std::memory_order_release);
+    g_inUrbsActive = true;
+    int queued = 0;
+    for (auto &in : g_inUrbs)
+        queued += urbSubmitIn(fd, in) ? 1 : 0;
+    if (queued == 0)
+        g_inUrbsActive = false; // telemetry falls back to synchronous reads
+    g_reaperRun = true;
+    g_reaperThread = std::thread(urbReaperLoop, fd);
+    LOGI("🔌 USBFS_IN: %d/%d reads of %d bytes queued", queued, kInUrbs, std::min(g_usbfsMaxPacketIn, kInUrbBufferSize));
+}
+
+// Caller has already stopped new submissions. Cancels what is still queued,
+// collects the cancelled URBs and stops the reaper before the fd goes away.
+static void urbPipelineStop(int fd)
+{
+    if (!g_reaperRun.load())
+        return;
+    g_inUrbsActive = false;
+    for (auto &slot : g_outUrbs)
+        if (slot.inFlight.load(std::memory_order_acquire))
+            ioctl(fd, USBDEVFS_DISCARDURB, &slot.urb);
+    for (auto &in : g_inUrbs)
+        if (in.inFlight.load(std::memory_order_acquire))
+            ioctl(fd, USBDEVFS_DISCARDURB, &in.urb);
+
+    auto pending = [] {
+        int n = urbInFlightCount();
+        for (auto &in : g_inUrbs)
+            n += in.inFlight.load(std::memory_order_acquire) ? 1 : 0;
+        return n;
+    };
+    int64_t giveUp = monoNowNs() + 100000000LL; // 100 ms
+    while (pending() > 0 && monoNowNs() < giveUp)
+        std::this_thread::sleep_for(std::chrono::milliseconds(1));
+
+    g_reaperRun = false;
+    if (g_reaperThread.joinable())
+        g_reaperThread.join();
+    reapCompletedUrbs(fd);
+}
+
+// inputEventNs: timestamp of the stick sample this frame first carries (0 if
+// none); recorded as input-to-wire latency once the transfer completes.
+static int transportWrite(const uint8_t *data, int len, int timeoutMs, int64_t inputEventNs = 0)
+{
+    if (g_usbfsFd.load(std::memory_order_acquire) >= 0)
+    {
+        std::lock_guard<std::mutex> lock(g_usbfsWriteMutex);
+        int fd = g_usbfsFd.load(std::memory_order_acquire);
+        if (fd >= 0)
+        {
+            if (g_usbfsAsyncOut.load(std::memory_order_relaxed) && g_reaperRun.load(std::memory_order_relaxed))
+                return urbSubmitOut(fd, data, len, inputEventNs);
+
+            int r = usbfsBulk(fd, g_usbfsEpOut, (void *)data, len, timeoutMs);
+            if (r < 0)
+            {
+                LOGD("⚠️ USBFS_WRITE_FAILED: errno=%d (%s)", errno, strerror(errno));
+            }
+            else
+            {
+                recordInputToWire(inputEventNs, monoNowNs());
+            }
+            return r < 0 ? -1 : r;
+        }
+    }
+
+    if (!g_frameRing || !g_writeSlot || len > kRingSlotSize)
+        return -1;
+    JNIEnv *env = envGet();
+    if (!env)
+        return -1;
+    int slot = int(g_ringTxNext.fetch_add(1, std::memory_order_relaxed) % kRingTxSlots);
+    memcpy(g_frameRing + slot * kRingSlotSize, data, len);
+    int r = env->CallStaticIntMethod(g_bridgeClass, g_writeSlot, (jint)slot, (jint)len, (jint)timeoutMs);
+    if (r > 0)
+        recordInputToWire(inputEventNs, monoNowNs());
+    return r;
+}
+
+static int transportRead(uint8_t *buffer, int capacity, int timeoutMs)
+{
+    if (g_usbfsFd.load(std::memory_order_acquire) >= 0)
+    {
+        std::lock_guard<std::mutex> lock(g_usbfsReadMutex);
+        int fd = g_usbfsFd.load(std::memory_order_acquire);
+        if (fd >= 0 && g_inUrbsActive.load(std::memory_order_acquire))
+            return urbReadIn(buffer, capacity, timeoutMs);
+        if (fd >= 0)
+        {
+            int r = usbfsBulk(fd, g_usbfsEpIn, buffer, capacity, timeoutMs);
+            if (r < 0 && errno != ETIMEDOUT)
+                LOGD("⚠️ USBFS_READ_FAILED: errno=%d (%s)", errno, strerror(errno));
+            return r < 0 ? -1 : r;
+        }
+    }
+
+    if (!g_frameRing || !g_readSlot)
+        return -1;
+    JNIEnv *env = envGet();
+    if (!env)
+        return -1;
+    // Only the telemetry thread reads, so a single RX slot is enough
+    const int slot = 0;
+    // The bulk read itself is capped at capacity so nothing is read and then dropped
+    int len = std::min(capacity, kRingSlotSize);
+    int bytesRead = env->CallStaticIntMethod(g_bridgeClass, g_readSlot, (jint)slot, (jint)len, (jint)timeoutMs);
+    if (bytesRead > 0)
+    {
+        bytesRead = std::min(bytesRead, len);
+        memcpy(buffer, g_frameRing + (kRingTxSlots + slot) * kRingSlotSize, bytesRead);
+    }
+    return bytesRead;
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_UsbBridge_nativeAttachUsbfs(JNIEnv *, jclass, jint fd, jint epOut, jint epIn,
+                                                     jint maxPacketOut, jint maxPacketIn)
+{
+    std::lock_guard<std::mutex> wl(g_usbfsWriteMutex);
+    std::lock_guard<std::mutex> rl(g_usbfsReadMutex);
+    g_usbfsEpOut = (uint8_t)epOut;
+    g_usbfsEpIn = (uint8_t)epIn;
+    g_usbfsMaxPacketOut = maxPacketOut > 0 ? maxPacketOut : 64;
+    g_usbfsMaxPacketIn = maxPacketIn > 0 ? maxPacketIn : 64;
+    urbPipelineStart(fd);
+    g_usbfsFd.store(fd, std::memory_order_release);
+    LOGI("🔌 USBFS_ATTACHED: fd=%d OUT=0x%02X IN=0x%02X maxPacket=%d/%d - native bulk transport active",
+         fd, epOut, epIn, maxPacketOut, maxPacketIn);
+}
+
+// Called before Java releases the interface and closes the connection. Taking
+// both I/O mutexes waits out any transfer still using the descriptor.
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_UsbBridge_nativeDetachUsbfs(JNIEnv *, jclass)
+{
+    std::lock_guard<std::mutex> wl(g_usbfsWriteMutex);
+    std::lock_guard<std::mutex> rl(g_usbfsReadMutex);
+    int fd = g_usbfsFd.exchange(-1);
+    if (fd >= 0)
+    {
+        urbPipelineStop(fd);
+        LOGI("🔌 USBFS_DETACHED: native bulk transport stopped");
+    }
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_UsbBridge_nativeSetAsyncOut(JNIEnv *, jclass, jboolean enabled)
+{
+    g_usbfsAsyncOut.store(enabled);
+    LOGI("🔌 USBFS_ASYNC_OUT: %s", enabled ? "ENABLED - URB pipeline" : "DISABLED - synchronous bulk writes");
+}
+
+// Layout: [completed, errors, overflows, queued]
+extern "C" JNIEXPORT jlongArray JNICALL
+Java_com_example_elrsotg_UsbBridge_nativeGetUsbInStats(JNIEnv *env, jclass)
+{
+    jlong queued = 0;
+    for (auto &in : g_inUrbs)
+        queued += in.inFlight.load() ? 1 : 0;
+    jlong stats[4] = {(jlong)g_inCompleted.load(), (jlong)g_inErrors.load(), (jlong)g_inOverflow.load(), queued};
+    jlongArray arr = env->NewLongArray(4);
+    env->SetLongArrayRegion(arr, 0, 4, stats);
+    return arr;
+}
+
+// Layout: [submitted, completed, errors, windowFull, inFlight, minNs, meanNs, p99Ns, maxNs]
+extern "C" JNIEXPORT jlongArray JNICALL
+Java_com_example_elrsotg_UsbBridge_nativeGetUsbOutStats(JNIEnv *env, jclass)
+{
+    uint64_t completed = g_urbLatencyHist.count.load();
+    jlong stats[9] = {
+        (jlong)g_urbSubmitted.load(),
+        (jlong)g_urbCompleted.load(),
+        (jlong)g_urbErrors.load(),
+        (jlong)g_urbWindowFull.load(),
+        (jlong)urbInFlightCount(),
+        (jlong)(completed ? g_urbLatencyHist.minNs.load() : 0),
+        (jlong)g_urbLatencyHist.meanNs(),
+        (jlong)g_urbLatencyHist.percentileNs(99),
+        (jlong)g_urbLatencyHist.maxNs.load()};
+    jlongArray arr = env->NewLongArray(9);
+    env->SetLongArrayRegion(arr, 0, 9, stats);
+    return arr;
+}
+
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_elrsotg_UsbBridge_nativeIsUsbfsActive(JNIEnv *, jclass)
+{
+    return g_usbfsFd.load() >= 0;
+}
+
+// ---- Direct HID gamepad ----
+// HidGamepadBridge claims the pad's HID interface and hands over the usbfs fd
+// and report descriptor. A native thread reads the interrupt IN endpoint (a
+// usbfs bulk request on an interrupt endpoint becomes an interrupt transfer)
+// and publishes sticks and button edges directly, stamped at transfer
+// completion. Sticks go into the reader's own input source slot (priority
+// above Android gamepads); Java-side button input is ignored while it runs so
+// the button queue keeps a single producer.
+constexpr int kHidMaxFields = 96;
+constexpr int kHidMaxReport = 64;
+
+struct HidField
+{
+    uint8_t reportId;
+    uint16_t bitOffset; // after the report ID byte
+    uint8_t bitSize;
+    uint16_t usagePage;
+    uint16_t usage;
+    int32_t logicalMin, logicalMax;
+};
+
+enum HidRole
+{
+    HID_X,
+    HID_Y,
+    HID_Z,
+    HID_RX,
+    HID_RY,
+    HID_RZ,
+    HID_HAT,
+    HID_ACCEL,
+    HID_ROLE_COUNT
+};
+
+struct HidLayout
+{
+    HidField fields[kHidMaxFields];
+    int count = 0;
+    bool reportIds = false;
+    int role[HID_ROLE_COUNT];
+    int buttonField[32]; // field index per mixer button, -1 if none
+    int mapped = 0;
+};
+
+static HidLayout g_hidLayout;
+static std::atomic<bool> g_hidInputActive{false}; // reader owns the button queue
+static int g_hidSource = -1;
+constexpr int kHidSourcePriority = 30; // above Android gamepads (20): it bypasses them for a reason
+static std::atomic<bool> g_hidRun{false};
+static std::thread g_hidThread;
+static int g_hidFd = -1;
+static uint8_t g_hidEp = 0;
+static int g_hidMaxPacket = 64;
+static std::atomic<uint64_t> g_hidReports{0}, g_hidChanged{0}, g_hidErrors{0};
+static std::atomic<int64_t> g_hidLastReportNs{0};
+
+// Walks the short items of a HID report descriptor and records every variable,
+// non-constant Input field with its bit position. Array inputs, long items and
+// output/feature reports are skipped. A descriptor whose input report would
+// not fit in kHidMaxReport bytes is rejected rather than parsed with wrapped
+// bit offsets.
+static bool parseHidDescriptor(const uint8_t *d, int len, HidLayout &out)
+{
+    struct Globals
+    {
+        uint16_t usagePage = 0;
+        int32_t logicalMin = 0, logicalMax = 0;
+        int logicalMaxBytes = 0; // size of the Logical Maximum item, for unsigned reinterpretation
+        uint32_t reportSize = 0, reportCount = 0;
+        uint8_t reportId = 0;
+    } g, stack[4];
+    int stackDepth = 0;
+    uint16_t usages[32];
+    int usageCount = 0;
+    uint32_t usageMin = 0, usageMax = 0;
+    bool haveRange = false;
+    uint16_t bitPos[256] = {};
+
+    out.count = 0;
+    out.reportIds = false;
+    for (int i = 0; i < len;)
+    {
+        uint8_t prefix = d[i++];
+        if (prefix == 0xFE) // long item
+        {
+            if (i + 1 >= len)
+                break;
+            i += 2 + d[i];
+            continue;
+        }
+        int size = (prefix & 3) == 3 ? 4 : (prefix & 3);
+        if (i + size > len)
+            break;
+        uint32_t u = 0;
+        for (int k = 0; k < size; k++)
+            u |= uint32_t(d[i + k]) << (8 * k);
+        int32_t sv = size == 1 ? int8_t(u) : size == 2 ? int16_t(u) : int32_t(u);
+        i += size;
+
+        switch (prefix & 0xFC)
+        {
+        case 0x04: g.usagePage = uint16_t(u); break;
+        case 0x14: g.logicalMin = sv; break;
+        case 0x24:
+            g.logicalMax = sv;
+            g.logicalMaxBytes = size;
+            break;
+        case 0x74: g.reportSize = u; break;
+        case 0x94: g.reportCount = u; break;
+        case 0x84:
+            g.reportId = uint8_t(u);
+            out.reportIds = true;
+            break;
+        case 0xA4:
+            if (stackDepth < 4)
+                stack[stackDepth++] = g;
+            break;
+        case 0xB4:
+            if (stackDepth > 0)
+                g = stack[--stackDepth];
+            break;
+        case 0x08:
+            if (usageCount < 32)
+                usages[usageCount++] = uint16_t(u);
+            break;
+        case 0x18:
+            usageMin = u;
+            haveRange = true;
+            break;
+        case 0x28:
+            usageMax = u;
+            haveRange = true;
+            break;
+        case 0x80: // Input
+        {
+            bool constant = u & 0x01, variable = u & 0x02;
+            uint64_t bits = uint64_t(g.reportSize) * g.reportCount;
+            if (bitPos[g.reportId] + bits > uint64_t(kHidMaxReport) * 8)
+            {
+                LOGI("❌ HID_READER: report %u needs %llu bits, more than %d bytes", g.reportId,
+                     (unsigned long long)(bitPos[g.reportId] + bits), kHidMaxReport);
+                out.count = 0;
+                return false;
+            }
+            // Unsigned ranges are often declared with a max that reads negative
+            uint64_t maxMask = (uint64_t(1) << (8 * g.logicalMaxBytes)) - 1;
+            int32_t lmax = g.logicalMin >= 0 && g.logicalMax < 0 ? int32_t(std::min<uint64_t>(uint32_t(g.logicalMax) & maxMask, INT32_MAX))
+                                                                  : g.logicalMax;
+            for (uint32_t n = 0; n < g.reportCount; n++)
+            {
+                if (!constant && variable && out.count < kHidMaxFields && g.reportSize <= 32)
+                {
+                    uint16_t usage = n < uint32_t(usageCount) ? usages[n]
+                                     : haveRange            ? uint16_t(std::min(usageMin + n, usageMax))
+                                     : usageCount           ? usages[usageCount - 1]
+                                                            : 0;
+                    out.fields[out.count++] = HidField{g.reportId, bitPos[g.reportId], uint8_t(g.reportSize),
+                                                       g.usagePage, usage, g.logicalMin, lmax};
+                }
+                bitPos[g.reportId] += uint16_t(g.reportSize);
+            }
+            usageCount = 0;
+            haveRange = false;
+            break;
+        }
+        case 0x90: // Output
+        case 0xB0: // Feature
+        case 0xA0: // Collection
+        case 0xC0: // End collection
+            usageCount = 0;
+            haveRange = false;
+            break;
+        default:
+            break;
+        }
+    }
+
+    for (int &r : out.role)
+        r = -1;
+    for (int &b : out.buttonField)
+        b = -1;
+    out.mapped = 0;
+    for (int f = 0; f < out.count; f++)
+    {
+        const HidField &field = out.fields[f];
+        int role = -1;
+        if (field.usagePage == 0x01 && field.usage >= 0x30 && field.usage <= 0x35)
+            role = HID_X + (field.usage - 0x30);
+        else if (field.usagePage == 0x01 && field.usage == 0x39)
+            role = HID_HAT;
+        else if (field.usagePage == 0x02 && field.usage == 0xC4)
+            role = HID_ACCEL;
+        else if (field.usagePage == 0x09 && field.usage >= 1)
+        {
+            // Buttons 1-13 -> mixer buttons 0-12, hat takes 13-16, the rest follow
+            int b = field.usage <= 13 ? field.usage - 1 : field.usage + 3;
+            if (b < 32 && out.buttonField[b] < 0)
+            {
+                out.buttonField[b] = f;
+                out.mapped++;
+            }
+        }
+        if (role >= 0 && out.role[role] < 0)
+        {
+            out.role[role] = f;
+            out.mapped++;
+        }
+    }
+    return out.role[HID_X] >= 0 && out.role[HID_Y] >= 0;
+}
+
+static int32_t hidExtract(const uint8_t *report, int len, const HidField &f)
+{
+    uint32_t v = 0;
+    for (int b = 0; b < f.bitSize; b++)
+    {
+        int bit = f.bitOffset + b;
+        if (bit / 8 < len && (report[bit / 8] >> (bit % 8)) & 1)
+            v |= 1u << b;
+    }
+    if (f.logicalMin < 0 && f.bitSize < 32 && (v >> (f.bitSize - 1)) & 1)
+        v |= ~0u << f.bitSize; // sign-extend
+    return int32_t(v);
+}
+
+static float hidAxis(const HidLayout &layout, int role, const uint8_t *report, int len)
+{
+    int f = layout.role[role];
+    if (f < 0)
+        return 0.0f;
+    const HidField &field = layout.fields[f];
+    float span = float(field.logicalMax) - float(field.logicalMin);
+    if (span <= 0)
+        return 0.0f;
+    float v = (float(hidExtract(report, len, field)) - float(field.logicalMin)) / span * 2.0f - 1.0f;
+    return std::clamp(v, -1.0f, 1.0f);
+}
+
+// Same primary/fallback rule as MainActivity.pickAxis
+static inline float hidPick(float primary, float fallback)
+{
+    return std::abs(primary) < 0.02f && std::abs(fallback) >= 0.02f ? fallback : primary;
+}
+
+static void hidHandleReport(const uint8_t *data, int len, int64_t nowNs, float *lastAxes, uint32_t &lastButtons)
+{
+    const HidLayout &layout = g_hidLayout;
+    uint8_t id = 0;
+    if (layout.reportIds)
+    {
+        if (len < 1)
+            return;
+        id = data[0];
+        data++;
+        len--;
+    }
+    if (layout.fields[layout.role[HID_X]].reportId != id)
+        return; // some other report (battery, vendor)
+
+    // Axis mapping mirrors MainActivity.readSticks
+    float axes[kResampledAxes];
+    axes[STICK_ROLL] = hidPick(hidAxis(layout, HID_X, data, len), hidAxis(layout, HID_RX, data, len));
+    axes[STICK_PITCH] = -hidPick(hidAxis(layout, HID_Y, data, len), hidAxis(layout, HID_RY, data, len));
+    axes[STICK_YAW] = hidAxis(layout, HID_Z, data, len);
+    float thr = (hidAxis(layout, HID_RZ, data, len) + 1.0f) * 0.5f;
+    if (layout.role[HID_RZ] < 0 && layout.role[HID_ACCEL] >= 0)
+        thr = (hidAxis(layout, HID_ACCEL, data, len) + 1.0f) * 0.5f;
+    axes[STICK_THR] = thr;
+
+    uint32_t buttons = 0;
+    for (int b = 0; b < 32; b++)
+        if (layout.buttonField[b] >= 0 && hidExtract(data, len, layout.fields[layout.buttonField[b]]))
+            buttons |= 1u << b;
+    if (layout.role[HID_HAT] >= 0)
+    {
+        const HidField &hat = layout.fields[layout.role[HID_HAT]];
+        int32_t dir = hidExtract(data, len, hat) - hat.logicalMin; // 0 = N, clockwise in 45 degree steps
+        if (dir >= 0 && dir < 8)
+        {
+            static const uint8_t kHatBits[8] = {0x1, 0x9, 0x8, 0xA, 0x2, 0x6, 0x4, 0x5}; // up,down,left,right
+            buttons |= uint32_t(kHatBits[dir]) << 13;
+        }
+    }
+
+    g_hidReports.fetch_add(1, std::memory_order_relaxed);
+    g_hidLastReportNs.store(nowNs, std::memory_order_relaxed);
+    InputSource &src = g_inputSources[g_hidSource];
+    if (std::equal(axes, axes + kResampledAxes, lastAxes) && buttons == lastButtons)
+        return; // pads repeat unchanged reports; only changes are new input
+    g_hidChanged.fetch_add(1, std::memory_order_relaxed);
+
+    if (!std::equal(axes, axes + kResampledAxes, lastAxes))
+    {
+        src.publish(axes, nowNs);
+        std::copy(axes, axes + kResampledAxes, lastAxes);
+    }
+    for (uint32_t changed = buttons ^ lastButtons; changed; changed &= changed - 1)
+    {
+        int b = __builtin_ctz(changed);
+        if (!g_buttonQueue.push(ButtonEvent{nowNs, uint8_t(b), bool((buttons >> b) & 1)}))
+            g_buttonDropped.fetch_add(1, std::memory_order_relaxed);
+        else
+            g_buttonEvents.fetch_add(1, std::memory_order_relaxed);
+    }
+    lastButtons = buttons;
+}
+
+static void hidReaderLoop()
+{
+    uint8_t report[kHidMaxReport];
+    float lastAxes[kResampledAxes] = {0, 0, 0, -1}; // force the first publish
+    uint32_t lastButtons = 0;
+    int len = std::min(g_hidMaxPacket, kHidMaxReport);
+    while (g_hidRun.load())
+    {
+        int r = usbfsBulk(g_hidFd, g_hidEp, report, len, 100);
+        if (r > 0)
+        {
+            hidHandleReport(report, r, monoNowNs(), lastAxes, lastButtons);
+            continue;
+        }
+        if (r < 0 && errno == ETIMEDOUT)
+            continue;
+        g_hidErrors.fetch_add(1, std::memory_order_relaxed);
+        if (errno == ENODEV || errno == ESHUTDOWN)
+        {
+            LOGI("🎮 HID_READER: device gone (errno=%d) - centring sticks, releasing buttons", errno);
+            break;
+        }
+        std::this_thread::sleep_for(std::chrono::milliseconds(1));
+    }
+
+    // Leave no stick deflected or button held by a reader that stopped;
+    // throttle is kept where it was. Marking the slot stale hands the sticks to
+    // any other source until Java stops the reader and frees the slot.
+    float centred[kResampledAxes] = {0, 0, 0, lastAxes[STICK_THR] < 0 ? 0.0f : lastAxes[STICK_THR]};
+    int64_t now = monoNowNs();
+    g_inputSources[g_hidSource].publish(centred, now);
+    g_inputSources[g_hidSource].staleNs.store(1, std::memory_order_relaxed);
+    for (uint32_t held = lastButtons; held; held &= held - 1)
+        g_buttonQueue.push(ButtonEvent{now, uint8_t(__builtin_ctz(held)), false});
+    g_hidInputActive = false;
+}
+
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_elrsotg_HidGamepadBridge_nativeStartHid(JNIEnv *env, jclass, jint fd, jint endpoint, jint maxPacket,
+                                                         jbyteArray descriptor)
+{
+    if (g_hidRun.load() || !descriptor)
+        return JNI_FALSE;
+    int len = env->GetArrayLength(descriptor);
+    std::vector<uint8_t> desc(len);
+    env->GetByteArrayRegion(descriptor, 0, len, (jbyte *)desc.data());
+    if (!parseHidDescriptor(desc.data(), len, g_hidLayout))
+    {
+        LOGI("❌ HID_READER: descriptor has no X/Y axes (%d fields)", g_hidLayout.count);
+        return JNI_FALSE;
+    }
+
+    g_hidSource = registerInputSource(kHidSourcePriority, kAllAxesMask, 0, true, monoNowNs());
+    if (g_hidSource < 0)
+    {
+        LOGI("❌ HID_READER: no free input source slot");
+        return JNI_FALSE;
+    }
+    g_hidFd = fd;
+    g_hidEp = uint8_t(endpoint);
+    g_hidMaxPacket = maxPacket > 0 ? maxPacket : 64;
+    g_hidReports = 0;
+    g_hidChanged = 0;
+    g_hidErrors = 0;
+    g_hidLastReportNs = 0;
+    g_hidInputActive = true;
+    g_hidRun = true;
+    g_hidThread = std::thread(hidReaderLoop);
+    LOGI("🎮 HID_READER: started fd=%d ep=0x%02X, %d input fields, %d mapped, report IDs %s", fd, endpoint,
+         g_hidLayout.count, g_hidLayout.mapped, g_hidLayout.reportIds ? "yes" : "no");
+    return JNI_TRUE;
+}
+
+// Called before Java releases the interface and closes the fd.
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_HidGamepadBridge_nativeStopHid(JNIEnv *, jclass)
+{
+    g_hidRun = false;
+    if (g_hidThread.joinable())
+        g_hidThread.join(); // bounded by the 100 ms read timeout
+    unregisterInputSource(g_hidSource);
+    g_hidSource = -1;
+    g_hidFd = -1;
+    LOGI("🎮 HID_READER: stopped");
+}
+
+// Layout: [reports, changedReports, errors, mappedFields, msSinceLastReport(-1 = never)]
+extern "C" JNIEXPORT jlongArray JNICALL
+Java_com_example_elrsotg_HidGamepadBridge_nativeGetHidStats(JNIEnv *env, jclass)
+{
+    int64_t last = g_hidLastReportNs.load();
+    jlong stats[5] = {(jlong)g_hidReports.load(), (jlong)g_hidChanged.load(), (jlong)g_hidErrors.load(),
+                      (jlong)g_hidLayout.mapped, (jlong)(last ? (monoNowNs() - last) / 1000000 : -1)};
+    jlongArray arr = env->NewLongArray(5);
+    env->SetLongArrayRegion(arr, 0, 5, stats);
+    return arr;
+}
+
+// ---- TX scheduler ----
+// The TX loop wakes on absolute CLOCK_MONOTONIC deadlines instead of sleeping a
+// fixed amount after each frame, so packing/JNI/USB time does not stretch the
+// period. Timing is recorded into a fixed-bin histogram readable over JNI.
+static std::atomic<int64_t> g_txPeriodNs{4000000}; // ~250 Hz
+static Histogram<4096> g_txPeriodHist(10000);      // 10 us bins, ~41 ms range
+static std::atomic<uint64_t> g_txMissedDeadlines{0};
+
+struct TxScheduler
+{
+    int64_t deadlineNs = 0;
+    int64_t lastWakeNs = 0;
+
+    void start()
+    {
+        deadlineNs = monoNowNs();
+        lastWakeNs = 0;
+    }
+
+    // Sleeps until the next absolute deadline. If we woke late by less than one
+    // period the frame goes out immediately (catch up, phase is kept); if one or
+    // more whole periods were lost they are skipped and counted as missed rather
+    // than burst-sent as stale frames.
+    void waitNext()
+    {
+        int64_t period = g_txPeriodNs.load(std::memory_order_relaxed);
+        deadlineNs += period;
+
+        int64_t now = monoNowNs();
+        if (now - deadlineNs >= period)
+        {
+            int64_t missed = (now - deadlineNs) / period;
+            deadlineNs += missed * period;
+            g_txMissedDeadlines.fetch_add(uint64_t(missed), std::memory_order_relaxed);
+        }
+        if (deadlineNs > now)
+            sleepUntilNs(deadlineNs);
+
+        int64_t wake = monoNowNs();
+        if (lastWakeNs != 0)
+            g_txPeriodHist.record(wake - lastWakeNs);
+        lastWakeNs = wake;
+    }
+};
+
+static void logTxTimingStats()
+{
+    LOGD("⏱️ TX_TIMING: target=%.3fms frames=%llu min=%.3fms mean=%.3fms p99=%.3fms max=%.3fms missed=%llu",
+         g_txPeriodNs.load() / 1e6, (unsigned long long)g_txPeriodHist.count.load(),
+         g_txPeriodHist.count.load() ? g_txPeriodHist.minNs.load() / 1e6 : 0.0,
+         g_txPeriodHist.meanNs() / 1e6, g_txPeriodHist.percentileNs(99) / 1e6,
+         g_txPeriodHist.maxNs.load() / 1e6, (unsigned long long)g_txMissedDeadlines.load());
+}
+
+// ---- Handset timing sync ----
+// ELRS TX modules report their packet clock back to the handset in CRSF
+// RADIO_ID (0x3A) frames, subtype 0x10: a big-endian uint32 packet interval and
+// int32 phase offset, both in 0.1 us. The offset is how long our RC frame waited
+// in the module before the next RF slot, minus the module's safety margin, so a
+// positive value means we are early and should stretch the period. The frames
+// arrive every ~200 ms, i.e. tens of TX ticks apart, so this is a PI loop whose
+// output is spread across the ticks until the next report: the proportional
+// term removes a fraction of the phase error per report, the integral term
+// tracks the crystal drift between the phone and the module.
+static constexpr uint8_t kCrsfFrameRadioId = 0x3A;
+static constexpr uint8_t kCrsfRadioIdTimingSubtype = 0x10;
+static constexpr float kSyncPhaseGain = 0.5f;         // share of phase error removed per report
+static constexpr float kSyncDriftGain = 0.05f;        // integral gain on phase error
+static constexpr int64_t kSyncLockThresholdNs = 50000; // |phase error| counted as locked
+static constexpr int kSyncLockReports = 3;             // consecutive good reports to declare lock
+static constexpr int64_t kSyncTimeoutNs = 1500000000;  // no report for 1.5 s -> free-run
+
+static std::atomic<int64_t> g_txNominalPeriodNs{4000000}; // free-running period
+static std::atomic<bool> g_syncEnabled{true};
+static std::atomic<bool> g_syncLocked{false};
+static std::atomic<int64_t> g_syncModuleRateNs{0};
+static std::atomic<int64_t> g_syncPhaseErrNs{0};
+static std::atomic<int64_t> g_syncLastReportNs{0};
+static std::atomic<int64_t> g_syncBasePeriodNs{0}; // module rate + drift trim
+static std::atomic<int> g_syncTrimTicksLeft{0};     // ticks the phase trim still applies
+static std::atomic<uint64_t> g_syncReports{0};
+
+struct TimingSync
+{
+    std::mutex mutex;
+    int64_t driftNs = 0;      // integral term, per-tick period trim
+    int goodReports = 0;
+    int64_t prevReportNs = 0;
+
+    void reset()
+    {
+        std::lock_guard<std::mutex> lock(mutex);
+        driftNs = 0;
+        goodReports = 0;
+        prevReportNs = 0;
+        g_syncLocked = false;
+        g_syncPhaseErrNs = 0;
+        g_syncModuleRateNs = 0;
+        g_syncLastReportNs = 0;
+        g_syncBasePeriodNs = 0;
+        g_syncTrimTicksLeft = 0;
+    }
+
+    void onReport(int64_t rateNs, int64_t offsetNs)
+    {
+        if (rateNs < 1000000 || rateNs > 50000000) // 20..1000 Hz
+            return;
+
+        // The module folds the offset into +-half a period; keep it there so a
+        // wrapped value never yanks the loop by a whole packet.
+        while (offsetNs > rateNs / 2)
+            offsetNs -= rateNs;
+        while (offsetNs < -rateNs / 2)
+            offsetNs += rateNs;
+
+        int64_t now = monoNowNs();
+        std::lock_guard<std::mutex> lock(mutex);
+
+        // Ticks until the next report, from the observed report spacing.
+        int64_t spacing = prevReportNs ? now - prevReportNs : 200000000;
+        prevReportNs = now;
+        int64_t ticks = std::max<int64_t>(1, std::min<int64_t>(spacing, kSyncTimeoutNs) / rateNs);
+
+        if (g_syncModuleRateNs.load(std::memory_order_relaxed) != rateNs)
+        {
+            driftNs = 0; // packet rate changed on the module; old trim is meaningless
+            goodReports = 0;
+        }
+        driftNs += (int64_t)(kSyncDriftGain * offsetNs) / ticks;
+        driftNs = std::max(-rateNs / 100, std::min(driftNs, rateNs / 100)); // +-1% crystal error
+        int64_t phaseTrim = (int64_t)(kSyncPhaseGain * offsetNs) / ticks;
+        phaseTrim = std::max(-rateNs / 8, std::min(phaseTrim, rateNs / 8));
+
+        if (std::abs(offsetNs) <= kSyncLockThresholdNs)
+            goodReports = std::min(goodReports + 1, kSyncLockReports);
+        else
+            goodReports = 0;
+
+        g_syncModuleRateNs = rateNs;
+        g_syncPhaseErrNs = offsetNs;
+        g_syncLastReportNs = now;
+        g_syncReports.fetch_add(1, std::memory_order_relaxed);
+
+        bool wasLocked = g_syncLocked.load(std::memory_order_relaxed);
+        bool locked = goodReports >= kSyncLockReports;
+        g_syncLocked = locked;
+        g_syncBasePeriodNs.store(rateNs + driftNs, std::memory_order_relaxed);
+        g_syncTrimTicksLeft.store((int)ticks, std::memory_order_relaxed);
+        if (g_syncEnabled.load(std::memory_order_relaxed))
+            g_txPeriodNs.store(rateNs + driftNs + phaseTrim, std::memory_order_relaxed);
+
+        if (locked != wasLocked)
+        {
+            LOGI("🔒 TIMING_SYNC: %s rate=%.3fms phaseErr=%.1fus drift=%.2fus",
+                 locked ? "locked" : "unlocked", rateNs / 1e6, offsetNs / 1e3, driftNs / 1e3);
+        }
+        else if (g_debugLogging.load())
+        {
+            LOGD("🔒 TIMING_SYNC: rate=%.3fms phaseErr=%.1fus drift=%.2fus period=%.3fms",
+                 rateNs / 1e6, offsetNs / 1e3, driftNs / 1e3, g_txPeriodNs.load() / 1e6);
+        }
+    }
+
+    // Called once per TX tick: falls back to the nominal period if the module
+    // stops reporting (unplugged, older firmware, telemetry not running).
+    void service()
+    {
+        int64_t last = g_syncLastReportNs.load(std::memory_order_relaxed);
+        bool stale = last == 0 || monoNowNs() - last > kSyncTimeoutNs;
+        if (!stale && g_syncEnabled.load(std::memory_order_relaxed))
+        {
+            // The phase trim is sized for the expected report spacing; once it
+            // has been applied that many times, hold the drift-corrected rate.
+            if (g_syncTrimTicksLeft.load(std::memory_order_relaxed) > 0 &&
+                g_syncTrimTicksLeft.fetch_sub(1, std::memory_order_relaxed) == 1)
+                g_txPeriodNs.store(g_syncBasePeriodNs.load(std::memory_order_relaxed), std::memory_order_relaxed);
+            return;
+        }
+        int64_t nominal = g_txNominalPeriodNs.load(std::memory_order_relaxed);
+        if (g_txPeriodNs.load(std::memory_order_relaxed) != nominal)
+            g_txPeriodNs.store(nominal, std::memory_order_relaxed);
+        if (stale && g_syncLocked.exchange(false))
+            LOGI("🔓 TIMING_SYNC: lost (no timing report for %lld ms), free-running",
+                 (long long)(kSyncTimeoutNs / 1000000));
+    }
+};
+
+static TimingSync g_timingSync;
+
+// frame: [sync][len][0x3A][dest][origin][subtype][rate u32 BE][offset i32 BE][crc]
+static void processTimingSyncFrame(const uint8_t *frame, int len)
+{
+    if (len < 15 || frame[5] != kCrsfRadioIdTimingSubtype)
+        return;
+    uint32_t rate = (uint32_t(frame[6]) << 24) | (uint32_t(frame[7]) << 16) | (uint32_t(frame[8]) << 8) | frame[9];
+    int32_t offset = (int32_t)((uint32_t(frame[10]) << 24) | (uint32_t(frame[11]) << 16) | (uint32_t(frame[12]) << 8) | frame[13]);
+    g_timingSync.onReport(int64_t(rate) * 100, int64_t(offset) * 100);
+}
+
+// ---- Packet-rate profiles ----
+// ELRS air rates the TX loop can run at. The selected profile sets the
+// free-running period; once the module reports its own packet clock the timing
+// sync above follows that instead. Everything that used to assume 4 ms (USB
+// timeouts, telemetry polling, log cadence) derives from the period actually
+// in use, so a rate change takes effect on the next tick without a restart.
+struct PacketRateProfile
+{
+    const char *name;
+    int hz;
+};
+static constexpr PacketRateProfile kPacketRates[] = {
+    {"50Hz", 50}, {"100Hz", 100}, {"150Hz", 150}, {"250Hz", 250}, {"333Hz", 333}, {"500Hz", 500}, {"F1000", 1000}};
+static constexpr int kPacketRateCount = sizeof(kPacketRates) / sizeof(kPacketRates[0]);
+static std::atomic<int> g_packetRate{3}; // 250Hz
+
+static int packetRateIndex(int hz)
+{
+    for (int i = 0; i < kPacketRateCount; i++)
+        if (kPacketRates[i].hz == hz)
+            return i;
+    return -1;
+}
+
+static inline int64_t txPeriodNow() { return g_txPeriodNs.load(std::memory_order_relaxed); }
+
+// Long enough for a frame plus one retry's worth of slack, never longer than
+// the old fixed 20 ms: a stalled write must not eat several ticks.
+static inline int txUsbTimeoutMs(int64_t periodNs)
+{
+    return (int)std::clamp<int64_t>(2 * periodNs / 1000000, 2, 20);
+}
+
+// Reads block until data arrives; the timeout only bounds how late the loop
+// notices shutdown or a due link-stats request.
+static inline int telemetryReadTimeoutMs(int64_t periodNs)
+{
+    return (int)std::clamp<int64_t>(25 * periodNs / 1000000, 20, 100);
+}
+
+// Number of TX ticks spanning `spanNs` at the current period (for log cadence).
+static inline int ticksPerSpan(int64_t periodNs, int64_t spanNs)
+{
+    return (int)std::max<int64_t>(1, spanNs / std::max<int64_t>(periodNs, 1));
+}
+
+// ---- Telemetry snapshot (shared with the UI) ----
+// Decoded telemetry is published into TelemetrySnapshot.buffer, a direct
+// ByteBuffer whose address JNI_OnLoad takes, as 32-bit words in native byte
+// order. Word 0 is a seqlock sequence (odd while a publish is in progress).
+// Every frame type owns a fixed group laid out as
+//   [updateNs (int64, 8-byte aligned), version, values...]
+// so each value carries the CLOCK_MONOTONIC time it was last decoded and the
+// UI, which polls once per display frame, only touches views whose group
+// moved. Units are normalised here (dBm, mW, mV, mA, cm/s, dm); strings are
+// NUL-padded bytes. The telemetry thread is the only writer. Layout must match
+// the constants in TelemetrySnapshot.java.
+enum TelemetryWord
+{
+    TELEM_SEQ = 0,
+
+    // 0x14 LINK_STATISTICS: rssi1/rssi2 dBm, lq %, snr dB, antenna, rfMode,
+    // txPower mW, downlink rssi dBm, lq %, snr dB, linkOk
+    TELEM_LINK = 2,
+    // 0x08 BATTERY_SENSOR: voltage mV, current mA, used mAh, remaining %
+    TELEM_BATTERY = 16,
+    // 0x02 GPS: lat/lon 1e-7 deg, ground speed 0.1 km/h, heading 0.01 deg,
+    // altitude m, satellites
+    TELEM_GPS = 24,
+    // 0x07 VARIO: vertical speed cm/s
+    TELEM_VARIO = 34,
+    // 0x09 BARO_ALTITUDE: altitude dm, vertical speed cm/s (0 if not sent)
+    TELEM_BARO = 38,
+    // 0x1E ATTITUDE: pitch, roll, yaw in 1e-4 rad
+    TELEM_ATTITUDE = 44,
+    // 0x1C LINK_RX_ID: rssi dBm, rssi %, lq %, snr dB, rf power dBm
+    TELEM_LINK_RX = 50,
+    // 0x1D LINK_TX_ID: same as LINK_RX plus frame rate Hz
+    TELEM_LINK_TX = 58,
+    // 0x21 FLIGHT_MODE: 16 bytes of text
+    TELEM_FLIGHT_MODE = 68,
+    // 0x2E ELRS status: bad packets, good packets, flags, 32 bytes of message
+    TELEM_ELRS_STATUS = 76,
+};
+constexpr int kTelemetryWords = 96;
+constexpr int kTelemGroupHeader = 3; // updateNs (2 words) + version
+constexpr int kTelemFlightModeBytes = 16;
+constexpr int kTelemElrsMessageBytes = 32;
+
+static int32_t *g_telemetrySnapshot = nullptr;
+
+// Writes a group's values, stamps it and bumps its version
+static void telemetryPublish(int group, const int32_t *values, int count)
+{
+    int32_t *s = g_telemetrySnapshot;
+    if (!s)
+        return;
+    int64_t now = monoNowNs();
+    int32_t seq = __atomic_load_n(&s[TELEM_SEQ], __ATOMIC_RELAXED);
+    __atomic_store_n(&s[TELEM_SEQ], seq + 1, __ATOMIC_RELAXED);
+    __atomic_thread_fence(__ATOMIC_RELEASE);
+    __atomic_store_n((int64_t *)&s[group], now, __ATOMIC_RELAXED);
+    __atomic_store_n(&s[group + 2], __atomic_load_n(&s[group + 2], __ATOMIC_RELAXED) + 1, __ATOMIC_RELAXED);
+    for (int i = 0; i < count; i++)
+        __atomic_store_n(&s[group + kTelemGroupHeader + i], values[i], __ATOMIC_RELAXED);
+    __atomic_store_n(&s[TELEM_SEQ], seq + 2, __ATOMIC_RELEASE);
+}
+
+// Copies a NUL-terminated (or payload-bounded) string into NUL-padded words
+static void telemetryPackString(int32_t *words, int maxBytes, const uint8_t *src, int srcLen)
+{
+    char text[kTelemElrsMessageBytes] = {0};
+    int n = 0;
+    while (n < srcLen && n < maxBytes - 1 && src[n] != 0)
+    {
+        text[n] = (char)src[n];
+        n++;
+    }
+    memcpy(words, text, maxBytes);
+}
+
+// UI side of the seqlock: copies the snapshot into `out` (the caller's
+// preallocated scratch array) if a publish completed since lastSeq, with the
+// acquire ordering the Java side cannot express on older releases. Returns
+// the sequence copied, or -1 when nothing new landed or a publish overlapped
+// (the UI retries on its next frame). Registered; @FastNative.
+static jint nativeCopySnapshot(JNIEnv *env, jclass, jbyteArray out, jint lastSeq)
+{
+    const int32_t *s = g_telemetrySnapshot;
+    if (!s || !out || env->GetArrayLength(out) < jsize(sizeof(int32_t)) * kTelemetryWords)
+        return -1;
+    int32_t seq = __atomic_load_n(&s[TELEM_SEQ], __ATOMIC_ACQUIRE);
+    if ((seq & 1) != 0 || seq == lastSeq)
+        return -1;
+    int32_t copy[kTelemetryWords];
+    for (int i = 0; i < kTelemetryWords; i++)
+        copy[i] = __atomic_load_n(&s[i], __ATOMIC_RELAXED);
+    __atomic_thread_fence(__ATOMIC_ACQUIRE);
+    if (__atomic_load_n(&s[TELEM_SEQ], __ATOMIC_RELAXED) != seq)
+        return -1;
+    env->SetByteArrayRegion(out, 0, sizeof(copy), (const jbyte *)copy);
+    return seq;
+}
+
+// ---- Telemetry history ----
+// Whole-flight record of decoded telemetry for the HUD graphs and logging.
+// Every field is its own column: a preallocated ring of (ms since reset,
+// value) plus min/max/sum aggregates over blocks of 16 and 256 samples, so an
+// append is O(1) and a range query touches at most a few dozen raw samples at
+// its edges and whole blocks in between. Downsampled views are one min/max
+// bucket per pixel column built from the same range query, so a 30 minute
+// graph costs roughly width * (log n + a few blocks) per frame, not n.
+// Fields arrive at different rates, so each column keeps its own timestamps.
+// The telemetry thread appends and the UI queries under g_historyMutex; the
+// TX path never touches it.
+enum HistoryField
+{
+    HIST_RSSI1,     // dBm
+    HIST_RSSI2,     // dBm
+    HIST_LQ,        // %
+    HIST_SNR,       // dB
+    HIST_TX_POWER,  // mW
+    HIST_VOLTAGE,   // V
+    HIST_CURRENT,   // A
+    HIST_ALTITUDE,  // m, barometric
+    HIST_GPS_LAT,   // deg (float: ~1 m resolution)
+    HIST_GPS_LON,   // deg
+    HIST_GPS_SPEED, // km/h
+    HIST_GPS_ALT,   // m
+    HIST_GPS_SATS,
+    HIST_FIELD_COUNT
+};
+
+constexpr uint32_t kHistBlock1 = 16;
+constexpr uint32_t kHistBlock2 = 256;
+constexpr uint32_t kHistLinkCapacity = 1u << 17;  // link stats: ~40 min at 50 Hz
+constexpr uint32_t kHistSensorCapacity = 1u << 15; // battery/baro/GPS: ~50 min at 10 Hz
+constexpr int kHistMaxBuckets = 4096;
+
+struct HistAgg
+{
+    float min = INFINITY;
+    float max = -INFINITY;
+    double sum = 0;
+    uint32_t n = 0;
+
+    void add(float v)
+    {
+        min = std::min(min, v);
+        max = std::max(max, v);
+        sum += v;
+        n++;
+    }
+
+    void merge(const HistAgg &o)
+    {
+        min = std::min(min, o.min);
+        max = std::max(max, o.max);
+        sum += o.sum;
+        n += o.n;
+    }
+};
+
+struct HistoryColumn
+{
+    uint32_t capacity = 0; // power of two, multiple of kHistBlock2
+    uint64_t count = 0;    // samples appended since reset
+    std::vector<int32_t> tMs;
+    std::vector<float> value;
+    std::vector<HistAgg> block1, block2;
+
+    void allocate(uint32_t cap)
+    {
+        capacity = cap;
+        tMs.assign(cap, 0);
+        value.assign(cap, 0.0f);
+        block1.assign(cap / kHistBlock1, HistAgg{});
+        block2.assign(cap / kHistBlock2, HistAgg{});
+        count = 0;
+    }
+
+    void append(int32_t t, float v)
+    {
+        uint32_t i = uint32_t(count) & (capacity - 1);
+        // A block's aggregate restarts when its first slot is reused
+        if (i % kHistBlock1 == 0)
+            block1[i / kHistBlock1] = HistAgg{};
+        if (i % kHistBlock2 == 0)
+            block2[i / kHistBlock2] = HistAgg{};
+        tMs[i] = t;
+        value[i] = v;
+        block1[i / kHistBlock1].add(v);
+        block2[i / kHistBlock2].add(v);
+        count++;
+    }
+
+    // First sample whose blocks have not been recycled by the ring
+    uint64_t oldest() const
+    {
+        if (count <= capacity)
+            return 0;
+        return (count - capacity + kHistBlock2 - 1) / kHistBlock2 * kHistBlock2;
+    }
 
-// Debug logging control
-static std::atomic<bool> g_debugLogging{false};
+    uint32_t slot(uint64_t n) const { return uint32_t(n) & (capacity - 1); }
 
-// ---- CRSF helpers ----
-static inline uint8_t crsf_crc8(const uint8_t *p, int n)
+    // First sample in [lo, hi) stamped at or after t
+    uint64_t lowerBound(int32_t t, uint64_t lo, uint64_t hi) const
+    {
+        while (lo < hi)
+        {
+            uint64_t mid = lo + (hi - lo) / 2;
+            if (tMs[slot(mid)] < t)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    // Aggregate over samples [a, b): raw edges, 16-blocks up to the next
+    // 256 boundary, then 256-blocks, then back down
+    HistAgg range(uint64_t a, uint64_t b) const
+    {
+        HistAgg r;
+        while (a < b && a % kHistBlock1 != 0)
+            r.add(value[slot(a++)]);
+        while (a + kHistBlock1 <= b && a % kHistBlock2 != 0)
+        {
+            r.merge(block1[slot(a) / kHistBlock1]);
+            a += kHistBlock1;
+        }
+        while (a + kHistBlock2 <= b)
+        {
+            r.merge(block2[slot(a) / kHistBlock2]);
+            a += kHistBlock2;
+        }
+        while (a + kHistBlock1 <= b)
+        {
+            r.merge(block1[slot(a) / kHistBlock1]);
+            a += kHistBlock1;
+        }
+        while (a < b)
+            r.add(value[slot(a++)]);
+        return r;
+    }
+};
+
+static std::mutex g_historyMutex;
+static HistoryColumn g_history[HIST_FIELD_COUNT];
+static int64_t g_historyEpochNs = 0;
+static float g_historyScratch[kHistMaxBuckets * 2];
+
+// Allocates every column once; later calls are no-ops
+static void historyInit()
 {
-    uint8_t c = 0;
-    for (int i = 0; i < n; i++)
+    std::lock_guard<std::mutex> lock(g_historyMutex);
+    if (g_history[0].capacity)
+        return;
+    for (int f = 0; f < HIST_FIELD_COUNT; f++)
+        g_history[f].allocate(f <= HIST_TX_POWER ? kHistLinkCapacity : kHistSensorCapacity);
+    g_historyEpochNs = monoNowNs();
+    LOGI("📈 TELEMETRY_HISTORY: %d columns allocated", HIST_FIELD_COUNT);
+}
+
+static inline int32_t historyNowMs()
+{
+    return int32_t((monoNowNs() - g_historyEpochNs) / 1000000);
+}
+
+// Appends `count` consecutive fields starting at `first`, all stamped now
+static void historyAppend(int first, const float *values, int count)
+{
+    std::lock_guard<std::mutex> lock(g_historyMutex);
+    if (!g_history[first].capacity)
+        return;
+    int32_t t = historyNowMs();
+    for (int i = 0; i < count; i++)
+        g_history[first + i].append(t, values[i]);
+}
+
+// Sample range covering the last windowMs (<= 0: everything retained)
+static void historyWindow(const HistoryColumn &c, int64_t windowMs, int32_t nowMs, uint64_t &a, uint64_t &b)
+{
+    a = c.oldest();
+    b = c.count;
+    if (windowMs > 0)
+        a = c.lowerBound(int32_t(std::max<int64_t>(int64_t(nowMs) - windowMs, INT32_MIN)), a, b);
+}
+
+// ---- Transmit multiplexer ----
+// The TX thread owns the OUT endpoint. RC channels are rebuilt from the latest
+// inputs every tick, so they always go out on schedule and never stale. MSP and
+// parameter frames from other threads wait in small bounded per-priority queues
+// and ride along in the same bulk transfer when the tick's UART budget has room.
+// A full queue is reported back to the caller instead of blocking it.
+enum TxPriority
+{
+    TX_PRIO_COMMAND = 0, // user-initiated: bind, reset, power, model
+    TX_PRIO_PARAM = 1,   // periodic: link stats, device discovery
+    TX_PRIO_COUNT
+};
+
+constexpr int kTxQueueDepth = 8;
+constexpr int kCrsfMaxFrame = 64;
+constexpr int kUartBaud = 460800;    // must match the CP210x rate set in UsbBridge.open()
+constexpr int kTxStarvationTicks = 8; // force one queued frame out after this many ticks
+
+struct QueuedFrame
+{
+    uint8_t len;
+    uint8_t data[kCrsfMaxFrame];
+};
+
+struct TxQueue
+{
+    QueuedFrame frames[kTxQueueDepth];
+    int head = 0;
+    int count = 0;
+};
+
+static TxQueue g_txQueues[TX_PRIO_COUNT];
+static std::mutex g_txQueueMutex;
+static std::atomic<uint64_t> g_txQueueSent{0}, g_txQueueRejected{0};
+
+static bool txEnqueue(TxPriority prio, const uint8_t *data, int len)
+{
+    if (len <= 0 || len > kCrsfMaxFrame)
+        return false;
+    std::lock_guard<std::mutex> lock(g_txQueueMutex);
+    TxQueue &q = g_txQueues[prio];
+    if (q.count == kTxQueueDepth)
     {
-        uint8_t b = uint8_t(p[i] ^ c);
-        for (int j = 0; j < 8; j++)
-            b = (b & 0x80) ? uint8_t((b << 1) ^ 0xD5) : uint8_t(b << 1);
-        c = b;
+        g_txQueueRejected.fetch_add(1, std::memory_order_relaxed);
+        return false;
     }
-    return c;
+    QueuedFrame &f = q.frames[(q.head + q.count) % kTxQueueDepth];
+    f.len = (uint8_t)len;
+    memcpy(f.data, data, len);
+    q.count++;
+    return true;
 }
-static inline uint16_t us2val(float us)
+
+// Bytes the module UART can take in one TX period, with 10% headroom
+static int txUartBudget(int64_t periodNs)
 {
-    float v = 172.f + (us - 1000.f) * ((1811.f - 172.f) / 1000.f);
-    if (v < 172)
-        v = 172;
-    if (v > 1811)
-        v = 1811;
-    return (uint16_t)v;
+    return int(int64_t(kUartBaud / 10) * periodNs / 1000000000LL * 9 / 10);
 }
-static inline uint16_t map_stick(float x) { return us2val(1500.f + x * 500.f); }
-static inline uint16_t map_thr(float t) { return us2val(1000.f + t * 1000.f); }
 
-static void pack(const uint16_t ch[16], uint8_t out[22])
+// Called by the TX thread only. Copies queued frames (highest priority first)
+// into out[] while they fit in room, leaving them queued; taken[] gets the
+// number copied per queue for txCommitQueued once the write has succeeded.
+// Never blocks: if a producer holds the lock the frames simply wait for the
+// next tick.
+static int txDrainQueued(uint8_t *out, int room, bool force, int taken[TX_PRIO_COUNT])
 {
-    uint32_t acc = 0;
-    int bits = 0, idx = 0;
-    for (int i = 0; i < 16; i++)
+    for (int p = 0; p < TX_PRIO_COUNT; p++)
+        taken[p] = 0;
+    std::unique_lock<std::mutex> lock(g_txQueueMutex, std::try_to_lock);
+    if (!lock.owns_lock())
+        return 0;
+
+    int used = 0;
+    for (int p = 0; p < TX_PRIO_COUNT; p++)
     {
-        acc |= (uint32_t(ch[i] & 0x7FF) << bits);
-        bits += 11;
-        while (bits >= 8)
+        TxQueue &q = g_txQueues[p];
+        while (taken[p] < q.count)
         {
-            out[idx++] = (uint8_t)(acc & 0xFF);
-            acc >>= 8;
-            bits -= 8;
+            QueuedFrame &f = q.frames[(q.head + taken[p]) % kTxQueueDepth];
+            if (f.len > room - used && !(force && used == 0))
+                return used;
+            memcpy(out + used, f.data, f.len);
+            used += f.len;
+            taken[p]++;
         }
     }
-    if (idx < 22)
-        out[idx] = (uint8_t)(acc & 0xFF);
+    return used;
 }
-static void build(const uint16_t ch[16], std::array<uint8_t, 26> &f)
+
+// Removes the frames a successful write carried. Producers only append, so
+// the frames copied by txDrainQueued are still at the head of their queues.
+// A failed write skips this and the same frames go out on a later tick.
+static void txCommitQueued(const int taken[TX_PRIO_COUNT])
 {
-    f[0] = 0xC8;
-    f[1] = 1 + 22 + 1;
-    f[2] = 0x16;
-    pack(ch, &f[3]);
-    f.back() = crsf_crc8(&f[2], 23);
+    std::lock_guard<std::mutex> lock(g_txQueueMutex);
+    for (int p = 0; p < TX_PRIO_COUNT; p++)
+    {
+        TxQueue &q = g_txQueues[p];
+        int n = std::min(taken[p], q.count);
+        q.head = (q.head + n) % kTxQueueDepth;
+        q.count -= n;
+        g_txQueueSent.fetch_add(n, std::memory_order_relaxed);
+    }
 }
 
-static JNIEnv *envGet()
+// Drops frames left over from a previous session so a stale bind/reset is
+// never sent when the loop restarts
+static void txQueueClear()
 {
-    JNIEnv *env = nullptr;
-    if (g_vm->GetEnv((void **)&env, JNI_VERSION_1_6) != JNI_OK)
-        g_vm->AttachCurrentThread(&env, nullptr);
-    return env;
+    std::lock_guard<std::mutex> lock(g_txQueueMutex);
+    for (auto &q : g_txQueues)
+    {
+        q.head = 0;
+        q.count = 0;
+    }
 }
 
 static void txLoop()
 {
-    auto period = std::chrono::milliseconds(4); // ~250 Hz
+    TxScheduler sched;
+    sched.start();
+    InputArbiter arbiter;
     while (g_run.load())
     {
-        uint16_t ch[16];
-        // Initialize all channels to safe defaults
-        for (int i = 0; i < 16; i++)
-            ch[i] = 992; // ~1500us neutral
+        StickState sticks{};
+        int64_t newInputNs = arbiter.select(sticks.ch, monoNowNs());
+        g_imuTilt.apply(sticks.ch);
+        g_filterBank.run(sticks.ch, txPeriodNow());
+        applyShaping(sticks.ch);
 
-        // Apply control inputs
-        ch[0] = map_stick(g_roll.load());  // Roll
-        ch[1] = map_stick(g_pitch.load()); // Pitch
-        ch[3] = map_stick(g_yaw.load());   // Yaw
-
-        // Throttle safety logic
-        float thr = g_thr.load();
         bool armed = g_armed.load();
         bool linkOk = g_linkOk.load();
         bool safetyOverride = g_safetyOverride.load();
+        bool throttleGated = !armed || (!linkOk && !safetyOverride);
+
+        // Throttle to minimum before the mixer sees it, so no output channel
+        // (or logical switch) that takes throttle as a source can carry it
+        if (throttleGated)
+            sticks.ch[STICK_THR] = 0.0f;
 
-        // Safety gates for throttle
-        if (!armed || (!linkOk && !safetyOverride))
+        // Mixer inputs: shaped sticks (throttle rescaled to -1..1), buttons, telemetry
+        float mixIn[SRC_COUNT];
+        for (int i = 0; i < kStickChannels; i++)
+            mixIn[SRC_AXIS + i] = sticks.ch[i];
+        mixIn[axisSource(STICK_THR)] = sticks.ch[STICK_THR] * 2.0f - 1.0f;
+        uint32_t buttons = g_buttonProcessor.update(monoNowNs());
+        g_buttonMask.store(buttons, std::memory_order_relaxed);
+        for (int i = 0; i < kMixButtons; i++)
+            mixIn[SRC_BUTTON + i] = (buttons >> i) & 1 ? 1.0f : -1.0f;
+        for (int i = 0; i < kMixSwitches; i++)
+            mixIn[SRC_SWITCH + i] = -1.0f;
+        mixIn[SRC_ARMED] = armed ? 1.0f : -1.0f;
+        mixIn[SRC_LINK_OK] = linkOk ? 1.0f : -1.0f;
+        mixIn[SRC_LINK_QUALITY] = g_linkQuality.load(std::memory_order_relaxed) / 50.0f - 1.0f;
+        mixIn[SRC_ONE] = 1.0f;
+
+        float mixOut[kMixChannels];
+        const MixProgram *program = g_mixer.enter();
+        runMixer(*program, mixIn, mixOut);
+        g_mixer.exit();
+
+        uint16_t ch[16];
+        for (int i = 0; i < kMixChannels; i++)
+            ch[i] = map_mix(mixOut[i]);
+
+        // Safety gates after the mixer as well: the throttle channel is at
+        // minimum while gated even if the program offsets it from another
+        // source, and the arm channel always reflects the real arm state.
+        float thr = (mixOut[kThrottleChannel] + 1.0f) * 0.5f;
+        if (throttleGated)
         {
             thr = 0.0f; // Force throttle to minimum
         }
+        ch[kThrottleChannel] = map_thr(thr);
+        ch[kArmChannel] = armed ? 1811 : 172; // AUX1 - ARM channel (high=armed, low=disarmed)
 
-        // Apply throttle with safety check
-        ch[2] = map_thr(thr);
-
-        // AUX channels for modes (AETR1234 mapping)
-        ch[4] = armed ? 1811 : 172; // AUX1 - ARM channel (high=armed, low=disarmed)
-        ch[5] = 992;                // AUX2 - Flight mode (neutral = default mode)
-        ch[6] = 992;                // AUX3 - Additional mode switch
-        ch[7] = 992;                // AUX4 - Beeper/other functions
-
-        // Send frame
+        // Send frame: RC first, then whatever queued MSP/param frames fit this slot
         std::array<uint8_t, 26> frame;
         build(ch, frame);
 
-        JNIEnv *env = envGet();
-        jbyteArray arr = env->NewByteArray((jsize)frame.size());
-        env->SetByteArrayRegion(arr, 0, (jsize)frame.size(), (jbyte *)frame.data());
-        int result = env->CallStaticIntMethod(g_bridgeClass, g_write, arr, (jint)frame.size(), 20);
-        env->DeleteLocalRef(arr);
+        uint8_t txBuf[kUrbBufferSize];
+        memcpy(txBuf, frame.data(), frame.size());
+        int txLen = (int)frame.size();
+        static int ticksWithoutQueued = 0;
+        int room = std::min(txUartBudget(txPeriodNow()), kUrbBufferSize) - txLen;
+        int taken[TX_PRIO_COUNT];
+        int queued =
+            txDrainQueued(txBuf + txLen, std::max(room, 0), ticksWithoutQueued >= kTxStarvationTicks, taken);
+        txLen += queued;
+        ticksWithoutQueued = queued > 0 ? 0 : ticksWithoutQueued + 1;
+
+        int64_t period = txPeriodNow();
+        int result = transportWrite(txBuf, txLen, txUsbTimeoutMs(period), newInputNs);
+        if (result > 0)
+        {
+            arbiter.commit();
+            if (queued > 0)
+                txCommitQueued(taken);
+        }
 
         // Enhanced logging for command tracking
         static int counter = 0;
@@ -145,10 +3106,10 @@ static void txLoop()
         bool stateChanged = (armed != lastArmed) || (std::abs(thr - lastThr) > 0.05f) || (linkOk != lastLinkOk);
 
         // Always log USB write results when debug logging is enabled, or occasionally when not
-        if (g_debugLogging.load() || (++counter % 50 == 0) || stateChanged)
+        if (g_debugLogging.load() || (++counter % ticksPerSpan(period, 200000000) == 0) || stateChanged)
         { // Debug: every frame, Normal: every ~200ms or on state change
             LOGD("🚁 TX_FRAME_SENT: Armed=%d, LinkOK=%d, Thr=%.2f, Roll=%.2f, Pitch=%.2f, Yaw=%.2f, USB_Result=%d",
-                 armed, linkOk, thr, g_roll.load(), g_pitch.load(), g_yaw.load(), result);
+                 armed, linkOk, thr, sticks.ch[STICK_ROLL], sticks.ch[STICK_PITCH], sticks.ch[STICK_YAW], result);
 
             if (result <= 0)
             {
@@ -174,20 +3135,127 @@ static void txLoop()
             lastLinkOk = linkOk;
         }
 
-        std::this_thread::sleep_for(period);
+        static int timingCounter = 0;
+        if (++timingCounter % ticksPerSpan(period, 5000000000LL) == 0) // ~5 s
+            logTxTimingStats();
+
+        g_timingSync.service();
+        sched.waitNext();
     }
 }
 
+// Hot-path natives bound explicitly instead of by symbol lookup; the Java
+// declarations carry @FastNative (see dalvik/annotation/optimization).
+static void nativeSetAxes(JNIEnv *, jclass, jint source, jfloat r, jfloat p, jfloat y, jfloat t, jlong eventTimeNs);
+static jboolean nativePushButton(JNIEnv *, jclass, jint button, jboolean down, jlong eventTimeNs);
+static void nativeSetTouchAxes(JNIEnv *, jclass, jint source, jfloat r, jfloat p, jfloat y, jfloat t,
+                               jlong eventTimeNs);
+
+static const JNINativeMethod kMainActivityNatives[] = {
+    {"nativeSetAxes", "(IFFFFJ)V", (void *)nativeSetAxes},
+    {"nativePushButton", "(IZJ)Z", (void *)nativePushButton},
+};
+
+static const JNINativeMethod kTouchStickNatives[] = {
+    {"nativeSetTouchAxes", "(IFFFFJ)V", (void *)nativeSetTouchAxes},
+};
+
+static const JNINativeMethod kTelemetrySnapshotNatives[] = {
+    {"nativeCopySnapshot", "([BI)I", (void *)nativeCopySnapshot},
+};
+
 extern "C" jint JNI_OnLoad(JavaVM *vm, void *)
 {
     g_vm = vm;
     JNIEnv *env = envGet();
+    g_shaping.publish(buildDefaultShaping());
+    g_mixer.publish(buildDefaultMixer());
+    for (int b = 0; b < 32; b++)
+    {
+        g_buttonModes[b] = BUTTON_MOMENTARY;
+        g_buttonDebounceNs[b] = 10000000;   // 10 ms
+        g_buttonLongPressNs[b] = 500000000; // 500 ms
+    }
     jclass cls = env->FindClass("com/example/elrsotg/UsbBridge");
     g_bridgeClass = (jclass)env->NewGlobalRef(cls);
-    g_write = env->GetStaticMethodID(g_bridgeClass, "write", "([BII)I");
+    g_writeSlot = env->GetStaticMethodID(g_bridgeClass, "writeSlot", "(III)I");
+    g_readSlot = env->GetStaticMethodID(g_bridgeClass, "readSlot", "(III)I");
+
+    // GetStaticMethodID has initialized UsbBridge, so its frame ring exists
+    jfieldID ringField = env->GetStaticFieldID(g_bridgeClass, "frameRing", "Ljava/nio/ByteBuffer;");
+    jobject ring = ringField ? env->GetStaticObjectField(g_bridgeClass, ringField) : nullptr;
+    if (ring && env->GetDirectBufferCapacity(ring) >= jlong(kRingSlotSize) * (kRingTxSlots + kRingRxSlots))
+    {
+        g_frameRing = (uint8_t *)env->GetDirectBufferAddress(ring);
+        LOGI("🔁 FRAME_RING: registered %d TX + %d RX slots of %d bytes", kRingTxSlots, kRingRxSlots, kRingSlotSize);
+    }
+    else
+    {
+        LOGI("❌ FRAME_RING: UsbBridge.frameRing missing or too small - JNI transport disabled");
+    }
+    if (ring)
+        env->DeleteLocalRef(ring);
+
+    jclass snapCls = env->FindClass("com/example/elrsotg/TelemetrySnapshot");
+    jfieldID snapField = snapCls ? env->GetStaticFieldID(snapCls, "buffer", "Ljava/nio/ByteBuffer;") : nullptr;
+    jobject snap = snapField ? env->GetStaticObjectField(snapCls, snapField) : nullptr;
+    if (snap && env->GetDirectBufferCapacity(snap) >= jlong(sizeof(int32_t)) * kTelemetryWords)
+    {
+        g_telemetrySnapshot = (int32_t *)env->GetDirectBufferAddress(snap);
+        LOGI("📡 TELEMETRY_SNAPSHOT: registered %d words", kTelemetryWords);
+    }
+    else
+    {
+        env->ExceptionClear();
+        LOGI("❌ TELEMETRY_SNAPSHOT: TelemetrySnapshot.buffer missing or too small - UI telemetry disabled");
+    }
+    if (snapCls && env->RegisterNatives(snapCls, kTelemetrySnapshotNatives,
+                                        sizeof(kTelemetrySnapshotNatives) / sizeof(kTelemetrySnapshotNatives[0])) != JNI_OK)
+    {
+        env->ExceptionClear();
+        LOGI("❌ TELEMETRY_SNAPSHOT: failed to register natives - UI telemetry disabled");
+    }
+    if (snap)
+        env->DeleteLocalRef(snap);
+    if (snapCls)
+        env->DeleteLocalRef(snapCls);
+
+    jclass activity = env->FindClass("com/example/elrsotg/MainActivity");
+    if (!activity ||
+        env->RegisterNatives(activity, kMainActivityNatives,
+                             sizeof(kMainActivityNatives) / sizeof(kMainActivityNatives[0])) != JNI_OK)
+    {
+        LOGI("❌ JNI: failed to register MainActivity natives");
+        env->ExceptionClear();
+        return JNI_ERR;
+    }
+    env->DeleteLocalRef(activity);
+
+    jclass touch = env->FindClass("com/example/elrsotg/TouchStickView");
+    if (!touch ||
+        env->RegisterNatives(touch, kTouchStickNatives, sizeof(kTouchStickNatives) / sizeof(kTouchStickNatives[0])) !=
+            JNI_OK)
+    {
+        LOGI("❌ JNI: failed to register TouchStickView natives");
+        env->ExceptionClear();
+        return JNI_ERR;
+    }
+    env->DeleteLocalRef(touch);
     return JNI_VERSION_1_6;
 }
 
+// On-screen sticks: same as nativeSetAxes, plus the stamp used to attribute
+// frames to touch in the latency histogram.
+static void nativeSetTouchAxes(JNIEnv *, jclass, jint source, jfloat r, jfloat p, jfloat y, jfloat t,
+                               jlong eventTimeNs)
+{
+    if (!inputSourceActive(source))
+        return;
+    g_touchLastEventNs.store(eventTimeNs, std::memory_order_relaxed);
+    const float values[] = {r, p, y, t};
+    g_inputSources[source].publish(values, eventTimeNs);
+}
+
 // ---- ELRS MSP Command helpers ----
 static void buildMspCommand(uint8_t function, const uint8_t *payload, uint8_t payloadSize, std::array<uint8_t, 64> &out, uint8_t &outSize)
 {
@@ -214,7 +3282,8 @@ static void buildMspCommand(uint8_t function, const uint8_t *payload, uint8_t pa
     outSize = idx + 1;
 }
 
-static bool sendMspCommand(uint8_t function, const uint8_t *payload = nullptr, uint8_t payloadSize = 0)
+static bool sendMspCommand(uint8_t function, const uint8_t *payload = nullptr, uint8_t payloadSize = 0,
+                           TxPriority prio = TX_PRIO_COMMAND)
 {
     std::array<uint8_t, 64> frame;
     uint8_t frameSize;
@@ -230,17 +3299,22 @@ static bool sendMspCommand(uint8_t function, const uint8_t *payload = nullptr, u
     LOGD("📤 MSP_COMMAND_PREP: Function=0x%02X, PayloadSize=%d, FrameSize=%d", function, payloadSize, frameSize);
     LOGD("📤 MSP_RAW_DATA: %s", hexStr);
 
-    JNIEnv *env = envGet();
-    if (!env)
+    // While the TX loop runs it owns the endpoint; hand the frame to its queue
+    if (g_run.load())
     {
-        LOGI("❌ MSP_COMMAND_FAILED: JNI environment not available");
-        return false;
+        bool queued = txEnqueue(prio, frame.data(), frameSize);
+        if (queued)
+        {
+            LOGD("✅ MSP_COMMAND_QUEUED: Function=0x%02X, %d bytes queued for next TX slot", function, frameSize);
+        }
+        else
+        {
+            LOGD("❌ MSP_COMMAND_REJECTED: Function=0x%02X, TX queue full (backpressure)", function);
+        }
+        return queued;
     }
 
-    jbyteArray arr = env->NewByteArray(frameSize);
-    env->SetByteArrayRegion(arr, 0, frameSize, (jbyte *)frame.data());
-    int result = env->CallStaticIntMethod(g_bridgeClass, g_write, arr, frameSize, 100);
-    env->DeleteLocalRef(arr);
+    int result = transportWrite(frame.data(), frameSize, 100);
 
     if (result > 0)
     {
@@ -284,7 +3358,7 @@ static bool sendElrsDeviceDiscovery()
 
     LOGD("🔍 ELRS_DISCOVERY_PREP: Broadcasting device enumeration request");
 
-    return sendMspCommand(0x28, payload, sizeof(payload));
+    return sendMspCommand(0x28, payload, sizeof(payload), TX_PRIO_PARAM);
 }
 
 // ELRS link statistics request based on elrsv3.lua analysis
@@ -300,12 +3374,37 @@ static bool sendElrsLinkStatsRequest()
 
     LOGD("📊 ELRS_LINKSTATS_PREP: Requesting telemetry data");
 
-    return sendMspCommand(0x2D, payload, sizeof(payload));
+    return sendMspCommand(0x2D, payload, sizeof(payload), TX_PRIO_PARAM);
 }
 
-extern "C" JNIEXPORT void JNICALL
-Java_com_example_elrsotg_MainActivity_nativeSetAxes(JNIEnv *, jclass, jfloat r, jfloat p, jfloat y, jfloat t)
+// Registered in JNI_OnLoad as @FastNative: must not block, so no logging.
+static jboolean nativePushButton(JNIEnv *, jclass, jint button, jboolean down, jlong eventTimeNs)
+{
+    if (button < 0 || button >= 32 || g_hidInputActive.load(std::memory_order_relaxed))
+        return JNI_FALSE;
+    if (!g_buttonQueue.push(ButtonEvent{eventTimeNs, uint8_t(button), down == JNI_TRUE}))
+    {
+        g_buttonDropped.fetch_add(1, std::memory_order_relaxed);
+        return JNI_FALSE;
+    }
+    g_buttonEvents.fetch_add(1, std::memory_order_relaxed);
+    return JNI_TRUE;
+}
+
+// Registered in JNI_OnLoad; MainActivity declares it @FastNative, so it runs
+// without a thread state transition and must not block. Logging is therefore
+// debug-only here.
+// source: slot from InputSources.register; samples for a slot come from one thread
+static void nativeSetAxes(JNIEnv *, jclass, jint source, jfloat r, jfloat p, jfloat y, jfloat t, jlong eventTimeNs)
 {
+    if (!inputSourceActive(source))
+        return;
+    const float values[] = {r, p, y, t};
+    g_inputSources[source].publish(values, eventTimeNs);
+
+    if (!g_debugLogging.load(std::memory_order_relaxed))
+        return;
+
     // Log significant control changes
     static float lastR = 0, lastP = 0, lastY = 0, lastT = 0;
     static int inputCounter = 0;
@@ -313,11 +3412,6 @@ Java_com_example_elrsotg_MainActivity_nativeSetAxes(JNIEnv *, jclass, jfloat r,
     bool significantChange = (std::abs(r - lastR) > 0.1f) || (std::abs(p - lastP) > 0.1f) ||
                              (std::abs(y - lastY) > 0.1f) || (std::abs(t - lastT) > 0.1f);
 
-    g_roll = r;
-    g_pitch = p;
-    g_yaw = y;
-    g_thr = t;
-
     if (significantChange || (++inputCounter % 100 == 0))
     {
         LOGI("🎮 CONTROLLER_INPUT: R=%.2f, P=%.2f, Y=%.2f, T=%.2f", r, p, y, t);
@@ -337,10 +3431,18 @@ Java_com_example_elrsotg_MainActivity_nativeSetAxes(JNIEnv *, jclass, jfloat r,
 extern "C" JNIEXPORT void JNICALL
 Java_com_example_elrsotg_MainActivity_nativeStart(JNIEnv *, jclass)
 {
+    g_txPeriodHist.reset();
+    g_txMissedDeadlines = 0;
+    g_inputLatencyHist.reset();
+    g_touchLatencyHist.reset();
+    txQueueClear();
+    g_timingSync.reset();
+    g_txPeriodNs = g_txNominalPeriodNs.load();
     g_run = true;
     std::thread(txLoop).detach();
-    LOGI("🚁 TX_LOOP_START: ✅ CRSF transmitter control active at 250Hz!");
-    LOGI("🚁 TX_LOOP_ACTIVE: Sending channel data to transmitter every 4ms");
+    const PacketRateProfile &rate = kPacketRates[g_packetRate.load()];
+    LOGI("🚁 TX_LOOP_START: ✅ CRSF transmitter control active at %s!", rate.name);
+    LOGI("🚁 TX_LOOP_ACTIVE: Sending channel data to transmitter every %.3fms", g_txPeriodNs.load() / 1e6);
     LOGI("🚁 TX_LOOP_CHANNELS: AETR1234 mapping - Roll/Pitch/Throttle/Yaw + AUX channels");
 }
 extern "C" JNIEXPORT void JNICALL
@@ -402,45 +3504,353 @@ Java_com_example_elrsotg_MainActivity_nativeSendCommand(JNIEnv *env, jclass, jst
     }
     else if (strcmp(cmd, "RESET") == 0)
     {
-        LOGI("🔄 USER_COMMAND: RESET initiated - Rebooting transmitter");
-        // Reset/reboot command - MSP reboot
-        result = sendMspCommand(0x68); // MSP_REBOOT
-        LOGI("🔄 RESET_COMMAND: %s - %s", result ? "✅ CONFIRMED SENT TO TX" : "❌ TRANSMISSION FAILED",
-             result ? "Transmitter should reboot now" : "Check USB connection");
+        LOGI("🔄 USER_COMMAND: RESET initiated - Rebooting transmitter");
+        // Reset/reboot command - MSP reboot
+        result = sendMspCommand(0x68); // MSP_REBOOT
+        LOGI("🔄 RESET_COMMAND: %s - %s", result ? "✅ CONFIRMED SENT TO TX" : "❌ TRANSMISSION FAILED",
+             result ? "Transmitter should reboot now" : "Check USB connection");
+    }
+    else if (strcmp(cmd, "MODEL_SELECT") == 0)
+    {
+        LOGI("🔀 USER_COMMAND: MODEL_SELECT initiated - Switching to next model");
+        // Model select - could cycle through model slots
+        uint8_t payload[] = {1};                   // next model
+        result = sendMspCommand(0xF6, payload, 1); // Custom model select command
+        LOGI("🔀 MODEL_SELECT: %s - %s", result ? "✅ CONFIRMED SENT TO TX" : "❌ TRANSMISSION FAILED",
+             result ? "Should switch to next model slot" : "Check USB connection");
+    }
+    else
+    {
+        LOGI("Unknown command: %s", cmd);
+    }
+
+    env->ReleaseStringUTFChars(command, cmd);
+    return result;
+}
+
+// ---- Telemetry Reading Support ----
+static std::atomic<bool> g_telemetryRun{false};
+
+// ---- CRSF stream parser ----
+// Telemetry is read straight into the parser's buffer and every complete frame
+// is handed to its handler in place. A frame must start with a CRSF address
+// byte, carry a sane length and match its CRC8; a candidate that fails any of
+// those costs exactly one byte and the scan resumes at the next buffered byte,
+// so a real frame sitting behind garbage or a false sync is still found.
+// Nothing that fails the CRC reaches a handler, in particular not the link
+// statistics that drive the arming gate.
+using CrsfHandler = void (*)(const uint8_t *frame, int len);
+
+static constexpr int kCrsfReadChunk = 128;
+
+static std::atomic<uint64_t> g_crsfFramesOk{0};
+static std::atomic<uint64_t> g_crsfCrcErrors{0};
+static std::atomic<uint64_t> g_crsfResyncs{0};
+static std::atomic<uint64_t> g_crsfBytesDiscarded{0};
+
+static inline bool crsfIsSync(uint8_t b)
+{
+    // Flight controller, radio (handset), CRSF transmitter, CRSF receiver
+    return b == 0xC8 || b == 0xEA || b == 0xEE || b == 0xEC;
+}
+
+// Payloads are big-endian; `p` points past sync, length and type
+static inline uint16_t crsfBe16(const uint8_t *p)
+{
+    return uint16_t((p[0] << 8) | p[1]);
+}
+
+static inline uint32_t crsfBe24(const uint8_t *p)
+{
+    return (uint32_t(p[0]) << 16) | (uint32_t(p[1]) << 8) | p[2];
+}
+
+static inline uint32_t crsfBe32(const uint8_t *p)
+{
+    return (uint32_t(p[0]) << 24) | (uint32_t(p[1]) << 16) | (uint32_t(p[2]) << 8) | p[3];
+}
+
+// CRSF uplink power index -> mW
+static constexpr int16_t kCrsfTxPowerMw[] = {0, 10, 25, 100, 500, 1000, 2000, 250, 50};
+
+static void crsfOnLinkStats(const uint8_t *frame, int len)
+{
+    if (len < 14)
+        return;
+    const uint8_t *p = frame + 3;
+    // RSSI is sent as -dBm
+    int rssi1 = -int(p[0]);
+    int rssi2 = -int(p[1]);
+    int lq = p[2];
+    int snr = (int8_t)p[3];
+    int txPowerMw = p[6] < sizeof(kCrsfTxPowerMw) / sizeof(kCrsfTxPowerMw[0]) ? kCrsfTxPowerMw[p[6]] : -1;
+
+    // Update link quality status for safety gates
+    // Consider link OK if LQ > 50% and RSSI > -100dBm
+    bool newLinkOk = (lq > 50) && (rssi1 > -100 || rssi2 > -100);
+    g_linkOk.store(newLinkOk);
+    g_linkQuality.store(lq);
+
+    // Picked up by the UI on its next frame
+    const int32_t link[] = {rssi1, rssi2, lq, snr, p[4], p[5], txPowerMw, -int(p[7]), p[8], (int8_t)p[9],
+                            newLinkOk ? 1 : 0};
+    telemetryPublish(TELEM_LINK, link, 11);
+    const float linkHist[] = {float(rssi1), float(rssi2), float(lq), float(snr), float(txPowerMw)};
+    historyAppend(HIST_RSSI1, linkHist, 5);
+
+    static int logCounter = 0;
+    if (++logCounter % 50 == 0)
+    { // Log every ~5 seconds
+        LOGI("Link Stats: RSSI1=%ddBm, RSSI2=%ddBm, LQ=%d%%, SNR=%ddB, TX=%dmW, down RSSI=%ddBm LQ=%d%%, LinkOK=%d",
+             rssi1, rssi2, lq, snr, txPowerMw, -int(p[7]), p[8], newLinkOk);
+    }
+}
+
+static void crsfOnBattery(const uint8_t *frame, int len)
+{
+    if (len < 12)
+        return;
+    const uint8_t *p = frame + 3;
+    int32_t voltageMv = crsfBe16(p) * 100;   // sent in 0.1 V
+    int32_t currentMa = crsfBe16(p + 2) * 100; // sent in 0.1 A
+    int32_t usedMah = (int32_t)crsfBe24(p + 4);
+    const int32_t battery[] = {voltageMv, currentMa, usedMah, p[7]};
+    telemetryPublish(TELEM_BATTERY, battery, 4);
+    const float batteryHist[] = {voltageMv / 1000.0f, currentMa / 1000.0f};
+    historyAppend(HIST_VOLTAGE, batteryHist, 2);
+
+    LOGD("Battery: %dmV, %dmA, %dmAh, %d%%", voltageMv, currentMa, usedMah, p[7]);
+}
+
+static void crsfOnGps(const uint8_t *frame, int len)
+{
+    if (len < 19)
+        return;
+    const uint8_t *p = frame + 3;
+    const int32_t gps[] = {(int32_t)crsfBe32(p), (int32_t)crsfBe32(p + 4), crsfBe16(p + 8), crsfBe16(p + 10),
+                           crsfBe16(p + 12) - 1000, p[14]};
+    telemetryPublish(TELEM_GPS, gps, 6);
+    const float gpsHist[] = {gps[0] * 1e-7f, gps[1] * 1e-7f, gps[2] * 0.1f, float(gps[4]), float(gps[5])};
+    historyAppend(HIST_GPS_LAT, gpsHist, 5);
+
+    LOGD("GPS: lat=%d lon=%d speed=%d alt=%dm sats=%d", gps[0], gps[1], gps[2], gps[4], gps[5]);
+}
+
+static void crsfOnVario(const uint8_t *frame, int len)
+{
+    if (len < 6)
+        return;
+    const int32_t vario[] = {(int16_t)crsfBe16(frame + 3)};
+    telemetryPublish(TELEM_VARIO, vario, 1);
+}
+
+static void crsfOnBaroAltitude(const uint8_t *frame, int len)
+{
+    int payload = len - 4;
+    if (payload < 2)
+        return;
+    const uint8_t *p = frame + 3;
+    // MSB set: whole metres; otherwise decimetres offset by 10000
+    uint16_t packed = crsfBe16(p);
+    int32_t altitudeDm = (packed & 0x8000) ? int32_t(packed & 0x7FFF) * 10 : int32_t(packed) - 10000;
+    int32_t verticalCms = 0;
+    if (payload >= 4)
+    {
+        verticalCms = (int16_t)crsfBe16(p + 2);
+    }
+    else if (payload == 3)
+    {
+        // Log-compressed int8: |v| = (e^(|n| * 0.026) - 1) * 100 cm/s
+        int8_t n = (int8_t)p[2];
+        float v = (expf(std::abs(n) * 0.026f) - 1.0f) * 100.0f;
+        verticalCms = (int32_t)lroundf(n < 0 ? -v : v);
+    }
+    const int32_t baro[] = {altitudeDm, verticalCms};
+    telemetryPublish(TELEM_BARO, baro, 2);
+    const float altitudeHist = altitudeDm * 0.1f;
+    historyAppend(HIST_ALTITUDE, &altitudeHist, 1);
+}
+
+static void crsfOnAttitude(const uint8_t *frame, int len)
+{
+    if (len < 10)
+        return;
+    const uint8_t *p = frame + 3;
+    const int32_t attitude[] = {(int16_t)crsfBe16(p), (int16_t)crsfBe16(p + 2), (int16_t)crsfBe16(p + 4)};
+    telemetryPublish(TELEM_ATTITUDE, attitude, 3);
+
+    LOGD("Attitude: Pitch=%d, Roll=%d, Yaw=%d", attitude[0], attitude[1], attitude[2]);
+}
+
+static void crsfOnLinkRx(const uint8_t *frame, int len)
+{
+    if (len < 9)
+        return;
+    const uint8_t *p = frame + 3;
+    const int32_t rx[] = {-int(p[0]), p[1], p[2], (int8_t)p[3], p[4]};
+    telemetryPublish(TELEM_LINK_RX, rx, 5);
+}
+
+static void crsfOnLinkTx(const uint8_t *frame, int len)
+{
+    if (len < 10)
+        return;
+    const uint8_t *p = frame + 3;
+    const int32_t tx[] = {-int(p[0]), p[1], p[2], (int8_t)p[3], p[4], p[5] * 10};
+    telemetryPublish(TELEM_LINK_TX, tx, 6);
+}
+
+static void crsfOnFlightMode(const uint8_t *frame, int len)
+{
+    if (len < 5)
+        return;
+    int32_t mode[kTelemFlightModeBytes / 4];
+    telemetryPackString(mode, kTelemFlightModeBytes, frame + 3, len - 4);
+    telemetryPublish(TELEM_FLIGHT_MODE, mode, kTelemFlightModeBytes / 4);
+
+    LOGD("Flight Mode: %.*s", kTelemFlightModeBytes, (const char *)mode);
+}
+
+static void crsfOnElrsStatus(const uint8_t *frame, int len)
+{
+    // Extended frame: dest, origin, bad packets, good packets (u16), flags, message
+    int payload = len - 4;
+    if (payload < 6)
+        return;
+    const uint8_t *p = frame + 3;
+    int32_t status[3 + kTelemElrsMessageBytes / 4] = {p[2], crsfBe16(p + 3), p[5]};
+    telemetryPackString(&status[3], kTelemElrsMessageBytes, p + 6, payload - 6);
+    telemetryPublish(TELEM_ELRS_STATUS, status, 3 + kTelemElrsMessageBytes / 4);
+
+    LOGD("ELRS status: bad=%d good=%d flags=0x%02X msg=%.*s", status[0], status[1], status[2],
+         kTelemElrsMessageBytes, (const char *)&status[3]);
+}
+
+static void crsfOnRadioId(const uint8_t *frame, int len)
+{
+    // RADIO_ID: handset timing sync
+    processTimingSyncFrame(frame, len);
+}
+
+static void crsfOnUnknown(const uint8_t *frame, int)
+{
+    LOGD("Unknown telemetry frame type: 0x%02X", frame[2]);
+}
+
+// Indexed by frame type; unknown types fall through to crsfOnUnknown
+static const std::array<CrsfHandler, 256> g_crsfHandlers = []
+{
+    std::array<CrsfHandler, 256> t;
+    t.fill(crsfOnUnknown);
+    t[0x02] = crsfOnGps;
+    t[0x07] = crsfOnVario;
+    t[0x08] = crsfOnBattery;
+    t[0x09] = crsfOnBaroAltitude;
+    t[0x14] = crsfOnLinkStats;
+    t[0x1C] = crsfOnLinkRx;
+    t[0x1D] = crsfOnLinkTx;
+    t[0x1E] = crsfOnAttitude;
+    t[0x21] = crsfOnFlightMode;
+    t[0x2E] = crsfOnElrsStatus;
+    t[kCrsfFrameRadioId] = crsfOnRadioId;
+    return t;
+}();
+
+// Owned by the telemetry thread. After parse() at most one partial frame
+// (< kCrsfMaxFrame bytes) is left, so a full read always fits behind it.
+struct CrsfStreamParser
+{
+    uint8_t buf[kCrsfMaxFrame + kCrsfReadChunk];
+    int head = 0;
+    int tail = 0;
+
+    uint8_t *writePtr()
+    {
+        if (head > 0)
+        {
+            memmove(buf, buf + head, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        return buf + tail;
     }
-    else if (strcmp(cmd, "MODEL_SELECT") == 0)
+
+    void commit(int n)
     {
-        LOGI("🔀 USER_COMMAND: MODEL_SELECT initiated - Switching to next model");
-        // Model select - could cycle through model slots
-        uint8_t payload[] = {1};                   // next model
-        result = sendMspCommand(0xF6, payload, 1); // Custom model select command
-        LOGI("🔀 MODEL_SELECT: %s - %s", result ? "✅ CONFIRMED SENT TO TX" : "❌ TRANSMISSION FAILED",
-             result ? "Should switch to next model slot" : "Check USB connection");
+        tail += n;
+        parse();
     }
-    else
+
+    void parse()
     {
-        LOGI("Unknown command: %s", cmd);
+        uint64_t ok = 0, crcErrors = 0, resyncs = 0, discarded = 0;
+        while (head < tail)
+        {
+            const uint8_t *p = buf + head;
+            if (!crsfIsSync(p[0]))
+            {
+                head++;
+                discarded++;
+                continue;
+            }
+            if (tail - head < 2)
+                break;
+            int len = p[1];
+            if (len < 2 || len > kCrsfMaxFrame - 2)
+            {
+                // Not a frame after all: rescan from the next byte
+                head++;
+                discarded++;
+                resyncs++;
+                continue;
+            }
+            if (tail - head < len + 2)
+                break;
+            if (crsf_crc8(p + 2, len - 1) != p[len + 1])
+            {
+                head++;
+                discarded++;
+                crcErrors++;
+                resyncs++;
+                continue;
+            }
+            ok++;
+            dispatch(p, len + 2);
+            head += len + 2;
+        }
+        if (ok)
+            g_crsfFramesOk.fetch_add(ok, std::memory_order_relaxed);
+        if (crcErrors)
+            g_crsfCrcErrors.fetch_add(crcErrors, std::memory_order_relaxed);
+        if (resyncs)
+            g_crsfResyncs.fetch_add(resyncs, std::memory_order_relaxed);
+        if (discarded)
+            g_crsfBytesDiscarded.fetch_add(discarded, std::memory_order_relaxed);
     }
 
-    env->ReleaseStringUTFChars(command, cmd);
-    return result;
-}
+    static void dispatch(const uint8_t *frame, int len)
+    {
+        LOGD("📥 RX_CRSF_FRAME: addr=0x%02X type=0x%02X, len=%d", frame[0], frame[2], len);
 
-// ---- Telemetry Reading Support ----
-static jmethodID g_read = nullptr;
-static jmethodID g_telemetryCallback = nullptr;
-static std::atomic<bool> g_telemetryRun{false};
+        // Show raw frame data when debug logging is enabled
+        if (g_debugLogging.load())
+        {
+            char hexStr[256] = {0};
+            char *p = hexStr;
+            for (int i = 0; i < len && i < 32; i++)
+            {
+                p += sprintf(p, "%02X ", frame[i]);
+            }
+            LOGD("📥 RX_FRAME_DATA: %s", hexStr);
+        }
 
-// Forward declaration
-static void processTelemetryFrame(const uint8_t *frame, int len);
+        g_crsfHandlers[frame[2]](frame, len);
+    }
+};
 
 static void telemetryLoop()
 {
-    uint8_t buffer[128];
-    uint8_t frame[64];
-    int framePos = 0;
-    bool inFrame = false;
-    uint8_t expectedLen = 0;
+    CrsfStreamParser parser;
 
     // Periodic request timing (based on elrsv3.lua timing)
     auto lastLinkStatsRequest = std::chrono::steady_clock::now();
@@ -448,16 +3858,13 @@ static void telemetryLoop()
 
     while (g_telemetryRun.load())
     {
-        JNIEnv *env = envGet();
-        jbyteArray arr = env->NewByteArray(128);
-
         // Read from USB with short timeout
-        int bytesRead = env->CallStaticIntMethod(g_bridgeClass, g_read, arr, 50);
+        int64_t period = txPeriodNow();
+        uint8_t *buffer = parser.writePtr();
+        int bytesRead = transportRead(buffer, kCrsfReadChunk, telemetryReadTimeoutMs(period));
 
         if (bytesRead > 0)
         {
-            env->GetByteArrayRegion(arr, 0, bytesRead, (jbyte *)buffer);
-
             // Log raw RX data when debug logging is enabled
             if (g_debugLogging.load())
             {
@@ -470,48 +3877,7 @@ static void telemetryLoop()
                 LOGD("📥 RX_RAW_DATA: %d bytes: %s", bytesRead, hexStr);
             }
 
-            // Parse CRSF frames from the data
-            for (int i = 0; i < bytesRead; i++)
-            {
-                uint8_t byte = buffer[i];
-
-                if (!inFrame && byte == 0xC8)
-                {
-                    // Start of frame
-                    frame[0] = byte;
-                    framePos = 1;
-                    inFrame = true;
-                    expectedLen = 0;
-                }
-                else if (inFrame)
-                {
-                    frame[framePos++] = byte;
-
-                    if (framePos == 2)
-                    {
-                        // Got length byte
-                        expectedLen = byte;
-                        if (expectedLen > 62)
-                        { // Invalid length
-                            inFrame = false;
-                            framePos = 0;
-                        }
-                    }
-                    else if (framePos >= 3 && framePos == expectedLen + 2)
-                    {
-                        // Complete frame received
-                        processTelemetryFrame(frame, framePos);
-                        inFrame = false;
-                        framePos = 0;
-                    }
-                    else if (framePos >= 64)
-                    {
-                        // Frame too long, reset
-                        inFrame = false;
-                        framePos = 0;
-                    }
-                }
-            }
+            parser.commit(bytesRead);
         }
 
         // Periodic link statistics request (like elrsv3.lua linkstatTimeout)
@@ -523,139 +3889,33 @@ static void telemetryLoop()
             LOGD("📊 PERIODIC_REQUEST: Link statistics requested");
         }
 
-        env->DeleteLocalRef(arr);
-        std::this_thread::sleep_for(std::chrono::milliseconds(10));
+        // Reads wake on data, so there is nothing to sleep for; only back off
+        // when the transport is failing outright
+        if (bytesRead < 0)
+            std::this_thread::sleep_for(std::chrono::milliseconds(5));
     }
 }
 
-static void processTelemetryFrame(const uint8_t *frame, int len)
+// Layout: [framesOk, crcErrors, resyncs, bytesDiscarded]
+extern "C" JNIEXPORT jlongArray JNICALL
+Java_com_example_elrsotg_MainActivity_nativeGetCrsfParserStats(JNIEnv *env, jclass)
 {
-    if (len < 4)
-        return;
-
-    uint8_t type = frame[2];
-    LOGD("📥 RX_CRSF_FRAME: type=0x%02X, len=%d", type, len);
-
-    // Show raw frame data when debug logging is enabled
-    if (g_debugLogging.load())
-    {
-        char hexStr[256] = {0};
-        char *p = hexStr;
-        for (int i = 0; i < len && i < 32; i++)
-        {
-            p += sprintf(p, "%02X ", frame[i]);
-        }
-        LOGD("📥 RX_FRAME_DATA: %s", hexStr);
-    }
-
-    switch (type)
-    {
-    case 0x14: // LINK_STATISTICS
-        if (len >= 12)
-        {
-            int8_t rssi1 = (int8_t)frame[3];
-            int8_t rssi2 = (int8_t)frame[4];
-            uint8_t lq = frame[5];
-            int8_t snr = (int8_t)frame[6];
-            uint8_t antenna = frame[7];
-            uint8_t rf_mode = frame[8];
-            uint8_t tx_power = frame[9];
-
-            // Update link quality status for safety gates
-            // Consider link OK if LQ > 50% and RSSI > -100dBm
-            bool newLinkOk = (lq > 50) && (rssi1 > -100 || rssi2 > -100);
-            g_linkOk.store(newLinkOk);
-
-            // Send link stats to Java UI
-            if (g_telemetryClass && g_telemetryUICallback && g_vm)
-            {
-                JNIEnv *env = nullptr;
-                if (g_vm->AttachCurrentThread(&env, nullptr) == JNI_OK)
-                {
-                    jstring typeStr = env->NewStringUTF("LINK_STATS");
-                    env->CallStaticVoidMethod((jclass)g_telemetryClass, g_telemetryUICallback, typeStr,
-                                              (jint)rssi1, (jint)rssi2, (jint)lq, (jint)snr, (jint)tx_power);
-                    env->DeleteLocalRef(typeStr);
-                    g_vm->DetachCurrentThread();
-                }
-            }
-
-            static int logCounter = 0;
-            if (++logCounter % 50 == 0)
-            { // Log every ~5 seconds
-                LOGI("Link Stats: RSSI1=%ddBm, RSSI2=%ddBm, LQ=%d%%, SNR=%ddB, LinkOK=%d",
-                     rssi1, rssi2, lq, snr, newLinkOk);
-            }
-        }
-        break;
-
-    case 0x08: // BATTERY_SENSOR
-        if (len >= 8)
-        {
-            uint16_t voltage = (frame[3] << 8) | frame[4];                     // mV
-            uint16_t current = (frame[5] << 8) | frame[6];                     // mA
-            uint32_t capacity = (frame[7] << 16) | (frame[8] << 8) | frame[9]; // mAh
-
-            // Send battery data to Java UI
-            if (g_telemetryClass && g_telemetryUICallback && g_vm)
-            {
-                JNIEnv *env = nullptr;
-                if (g_vm->AttachCurrentThread(&env, nullptr) == JNI_OK)
-                {
-                    jstring typeStr = env->NewStringUTF("BATTERY");
-                    env->CallStaticVoidMethod((jclass)g_telemetryClass, g_telemetryUICallback, typeStr,
-                                              (jint)voltage, (jint)current, (jint)capacity, 0, 0);
-                    env->DeleteLocalRef(typeStr);
-                    g_vm->DetachCurrentThread();
-                }
-            }
-
-            LOGI("Battery: %dmV, %dmA, %dmAh", voltage, current, capacity);
-        }
-        break;
-
-    case 0x1E: // ATTITUDE
-        if (len >= 8)
-        {
-            int16_t pitch = (int16_t)((frame[3] << 8) | frame[4]);
-            int16_t roll = (int16_t)((frame[5] << 8) | frame[6]);
-            int16_t yaw = (int16_t)((frame[7] << 8) | frame[8]);
-
-            LOGI("Attitude: Pitch=%d, Roll=%d, Yaw=%d", pitch, roll, yaw);
-        }
-        break;
-
-    case 0x21: // FLIGHT_MODE
-        if (len >= 4)
-        {
-            uint8_t mode = frame[3];
-            LOGI("Flight Mode: %d", mode);
-        }
-        break;
-
-    default:
-        LOGI("Unknown telemetry frame type: 0x%02X", type);
-        break;
-    }
+    jlong stats[4] = {
+        (jlong)g_crsfFramesOk.load(std::memory_order_relaxed),
+        (jlong)g_crsfCrcErrors.load(std::memory_order_relaxed),
+        (jlong)g_crsfResyncs.load(std::memory_order_relaxed),
+        (jlong)g_crsfBytesDiscarded.load(std::memory_order_relaxed)};
+    jlongArray arr = env->NewLongArray(4);
+    env->SetLongArrayRegion(arr, 0, 4, stats);
+    return arr;
 }
 
 extern "C" JNIEXPORT void JNICALL
-Java_com_example_elrsotg_MainActivity_nativeStartTelemetry(JNIEnv *env, jclass clazz)
+Java_com_example_elrsotg_MainActivity_nativeStartTelemetry(JNIEnv *, jclass)
 {
     LOGI("📡 TELEMETRY_START: Initializing bidirectional communication with TX");
 
-    if (!g_read)
-    {
-        g_read = env->GetStaticMethodID(g_bridgeClass, "read", "([BI)I");
-        LOGI("📡 TELEMETRY_SETUP: ✅ USB read method configured");
-    }
-
-    if (!g_telemetryCallback)
-    {
-        g_telemetryCallback = env->GetStaticMethodID(clazz, "onTelemetryData", "(Ljava/lang/String;IIIII)V");
-        LOGI("📡 TELEMETRY_SETUP: ✅ UI callback method configured");
-    }
-
+    historyInit();
     g_telemetryRun = true;
     std::thread(telemetryLoop).detach();
     LOGI("📡 TELEMETRY_ACTIVE: ✅ Reader thread started - listening for TX data");
@@ -671,6 +3931,7 @@ extern "C" JNIEXPORT void JNICALL
 Java_com_example_elrsotg_MainActivity_nativeStopTelemetry(JNIEnv *, jclass)
 {
     g_telemetryRun = false;
+    g_inWaitCv.notify_all();
     LOGI("📡 TELEMETRY_STOP: ✅ Reader thread stopping - no more data from TX");
     LOGI("📡 TELEMETRY_INACTIVE: Bidirectional communication suspended");
 }
@@ -717,50 +3978,563 @@ extern "C" JNIEXPORT void JNICALL
 Java_com_example_elrsotg_MainActivity_nativeEmergencyStop(JNIEnv *, jclass)
 {
     g_armed.store(false);
-    g_roll.store(0.0f);
-    g_pitch.store(0.0f);
-    g_yaw.store(0.0f);
-    g_thr.store(0.0f);
+    // Snapshot only (no history sample), so the TX thread uses it as-is
+    const float zero[kStickChannels] = {};
+    int64_t now = monoNowNs();
+    for (InputSource &src : g_inputSources)
+        src.snap.publish(zero, kStickChannels, now);
     LOGI("🚨 EMERGENCY_STOP: CRITICAL SAFETY ACTION INITIATED!");
     LOGI("🚨 EMERGENCY_STOP: ✅ ARMED=FALSE, ALL AXES ZEROED");
     LOGI("🚨 EMERGENCY_STOP: ✅ CONFIRMED - Next TX frame will cut all power");
     LOGI("🚨 EMERGENCY_STOP: Roll=0, Pitch=0, Yaw=0, Throttle=0, AUX1=LOW");
 }
 
-// Global telemetry UI callback reference (separate from existing g_telemetryCallback method ID)
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_MainActivity_nativeSetDebugLogging(JNIEnv *, jclass, jboolean enabled)
+{
+    g_debugLogging.store(enabled);
+    if (enabled)
+    {
+        LOGI("🔍 DEBUG_LOGGING: ✅ ENABLED - Detailed TX/RX logging active");
+        LOGI("🔍 DEBUG_MODE: Will show raw hex data for all USB communications");
+    }
+    else
+    {
+        LOGI("🔍 DEBUG_LOGGING: ❌ DISABLED - Debug logging stopped");
+    }
+}
+
+// ---- TX timing statistics ----
+// Layout: [frames, minNs, meanNs, p99Ns, maxNs, missedDeadlines, targetPeriodNs]
+extern "C" JNIEXPORT jlongArray JNICALL
+Java_com_example_elrsotg_MainActivity_nativeGetTxTimingStats(JNIEnv *env, jclass)
+{
+    uint64_t frames = g_txPeriodHist.count.load();
+    jlong stats[7] = {
+        (jlong)frames,
+        (jlong)(frames ? g_txPeriodHist.minNs.load() : 0),
+        (jlong)g_txPeriodHist.meanNs(),
+        (jlong)g_txPeriodHist.percentileNs(99),
+        (jlong)g_txPeriodHist.maxNs.load(),
+        (jlong)g_txMissedDeadlines.load(),
+        (jlong)g_txPeriodNs.load()};
+    jlongArray arr = env->NewLongArray(7);
+    env->SetLongArrayRegion(arr, 0, 7, stats);
+    return arr;
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_MainActivity_nativeResetTxTimingStats(JNIEnv *, jclass)
+{
+    g_txPeriodHist.reset();
+    g_txMissedDeadlines = 0;
+    LOGI("⏱️ TX_TIMING: statistics reset");
+}
+
+// Layout: [queuedCommand, queuedParam, sent, rejected]
+extern "C" JNIEXPORT jlongArray JNICALL
+Java_com_example_elrsotg_MainActivity_nativeGetTxQueueStats(JNIEnv *env, jclass)
+{
+    jlong stats[4];
+    {
+        std::lock_guard<std::mutex> lock(g_txQueueMutex);
+        stats[0] = g_txQueues[TX_PRIO_COMMAND].count;
+        stats[1] = g_txQueues[TX_PRIO_PARAM].count;
+    }
+    stats[2] = (jlong)g_txQueueSent.load();
+    stats[3] = (jlong)g_txQueueRejected.load();
+    jlongArray arr = env->NewLongArray(4);
+    env->SetLongArrayRegion(arr, 0, 4, stats);
+    return arr;
+}
+
+// ---- Timing sync status ----
+// Layout: [enabled, locked, moduleRateNs, phaseErrNs, appliedPeriodNs, reports, msSinceLastReport(-1 = never)]
+extern "C" JNIEXPORT jlongArray JNICALL
+Java_com_example_elrsotg_MainActivity_nativeGetTimingSyncStats(JNIEnv *env, jclass)
+{
+    int64_t last = g_syncLastReportNs.load();
+    jlong stats[7] = {
+        (jlong)g_syncEnabled.load(),
+        (jlong)g_syncLocked.load(),
+        (jlong)g_syncModuleRateNs.load(),
+        (jlong)g_syncPhaseErrNs.load(),
+        (jlong)g_txPeriodNs.load(),
+        (jlong)g_syncReports.load(),
+        (jlong)(last ? (monoNowNs() - last) / 1000000 : -1)};
+    jlongArray arr = env->NewLongArray(7);
+    env->SetLongArrayRegion(arr, 0, 7, stats);
+    return arr;
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_MainActivity_nativeSetTimingSyncEnabled(JNIEnv *, jclass, jboolean enabled)
+{
+    g_syncEnabled = enabled;
+    LOGI("🔒 TIMING_SYNC: %s", enabled ? "enabled" : "disabled (free-running)");
+}
+
+// ---- Packet rate selection ----
+// Returns false for rates that are not one of the ELRS profiles.
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_elrsotg_MainActivity_nativeSetPacketRate(JNIEnv *, jclass, jint hz)
+{
+    int index = packetRateIndex(hz);
+    if (index < 0)
+    {
+        LOGI("❌ PACKET_RATE: %d Hz is not a supported profile", (int)hz);
+        return JNI_FALSE;
+    }
+    g_packetRate = index;
+    int64_t period = 1000000000LL / kPacketRates[index].hz;
+    g_txNominalPeriodNs = period;
+    // Free-running loops pick this up on their next tick (TimingSync::service);
+    // a locked loop keeps following the module's reported rate.
+    int64_t moduleRate = g_syncModuleRateNs.load();
+    if (g_syncLocked.load() && std::llabs(moduleRate - period) > period / 100)
+    {
+        LOGI("📶 PACKET_RATE: %s selected, module reports %.3fms - staying synced to module",
+             kPacketRates[index].name, moduleRate / 1e6);
+    }
+    else
+    {
+        LOGI("📶 PACKET_RATE: %s (%.3fms)", kPacketRates[index].name, period / 1e6);
+    }
+    return JNI_TRUE;
+}
+
+extern "C" JNIEXPORT jint JNICALL
+Java_com_example_elrsotg_MainActivity_nativeGetPacketRate(JNIEnv *, jclass)
+{
+    return kPacketRates[g_packetRate.load()].hz;
+}
+
+// ---- Input-to-wire latency statistics ----
+// Layout: [samples, p50Ns, p95Ns, p99Ns, maxNs]
+extern "C" JNIEXPORT jlongArray JNICALL
+Java_com_example_elrsotg_MainActivity_nativeGetInputLatencyStats(JNIEnv *env, jclass)
+{
+    jlong stats[5] = {
+        (jlong)g_inputLatencyHist.count.load(),
+        (jlong)g_inputLatencyHist.percentileNs(50),
+        (jlong)g_inputLatencyHist.percentileNs(95),
+        (jlong)g_inputLatencyHist.percentileNs(99),
+        (jlong)g_inputLatencyHist.maxNs.load()};
+    jlongArray arr = env->NewLongArray(5);
+    env->SetLongArrayRegion(arr, 0, 5, stats);
+    return arr;
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_MainActivity_nativeResetInputLatencyStats(JNIEnv *, jclass)
+{
+    g_inputLatencyHist.reset();
+    LOGI("⏱️ INPUT_LATENCY: statistics reset");
+}
 
+// ---- Input resampling ----
 extern "C" JNIEXPORT void JNICALL
-Java_com_example_elrsotg_MainActivity_registerTelemetryCallback(JNIEnv *env, jclass clazz)
+Java_com_example_elrsotg_MainActivity_nativeSetInputResampling(JNIEnv *, jclass, jboolean enabled)
+{
+    g_inputResample = enabled;
+    LOGI("🎮 INPUT_RESAMPLE: %s", enabled ? "enabled" : "disabled (latest sample)");
+}
+
+// ---- Stick shaping profile ----
+// axes: roll, pitch, yaw x {deadzone, expo, rate} (9 floats)
+// throttleCurve: output at evenly spaced inputs 0..1 (2..16 points)
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_elrsotg_MainActivity_nativeSetShapingProfile(JNIEnv *env, jclass, jfloatArray axes,
+                                                              jfloatArray throttleCurve, jfloat throttleDeadzone,
+                                                              jfloat throttleIdle)
+{
+    if (!axes || !throttleCurve || env->GetArrayLength(axes) != 9)
+        return JNI_FALSE;
+    int points = env->GetArrayLength(throttleCurve);
+    if (points < 2 || points > kMaxThrottlePoints)
+        return JNI_FALSE;
+
+    float a[9], curve[kMaxThrottlePoints];
+    env->GetFloatArrayRegion(axes, 0, 9, a);
+    env->GetFloatArrayRegion(throttleCurve, 0, points, curve);
+
+    auto *profile = new ShapingProfile;
+    for (int i = 0; i < 3; i++)
+        compileStickLut(AxisShape{a[i * 3], a[i * 3 + 1], a[i * 3 + 2]}, profile->stick[i]);
+    compileThrottleLut(curve, points, throttleDeadzone, throttleIdle, profile->throttle);
+    g_shaping.publish(profile);
+
+    LOGI("🎚️ SHAPING: roll dz=%.2f expo=%.2f rate=%.2f, pitch dz=%.2f expo=%.2f rate=%.2f, "
+         "yaw dz=%.2f expo=%.2f rate=%.2f, throttle %d pts idle=%.2f",
+         a[0], a[1], a[2], a[3], a[4], a[5], a[6], a[7], a[8], points, throttleIdle);
+    return JNI_TRUE;
+}
+
+// ---- Mixer configuration ----
+// See compileMixer() for the table layouts; MixerConfig.java builds them.
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_elrsotg_MixerConfig_nativeApply(JNIEnv *env, jclass, jintArray switches, jfloatArray thresholds,
+                                                 jintArray mixes, jfloatArray mixParams, jfloatArray limits)
 {
-    LOGI("Registering telemetry UI callback");
+    int swCount = switches ? env->GetArrayLength(switches) / 3 : 0;
+    int mixCount = mixes ? env->GetArrayLength(mixes) / 4 : 0;
+    if (swCount > kMixSwitches || mixCount > kMaxMixInstr ||
+        (swCount && (!thresholds || env->GetArrayLength(thresholds) < swCount)) ||
+        (mixCount && (!mixParams || env->GetArrayLength(mixParams) < mixCount * 2)) ||
+        (limits && env->GetArrayLength(limits) < kMixChannels * 2))
+        return JNI_FALSE;
 
-    // Find the callback method
-    g_telemetryUICallback = env->GetStaticMethodID(clazz, "onTelemetryData",
-                                                   "(Ljava/lang/String;IIIII)V");
+    int sw[kMixSwitches * 3], mix[kMaxMixInstr * 4];
+    float swThreshold[kMixSwitches], params[kMaxMixInstr * 2], lim[kMixChannels * 2];
+    if (swCount)
+    {
+        env->GetIntArrayRegion(switches, 0, swCount * 3, sw);
+        env->GetFloatArrayRegion(thresholds, 0, swCount, swThreshold);
+    }
+    if (mixCount)
+    {
+        env->GetIntArrayRegion(mixes, 0, mixCount * 4, mix);
+        env->GetFloatArrayRegion(mixParams, 0, mixCount * 2, params);
+    }
+    if (limits)
+        env->GetFloatArrayRegion(limits, 0, kMixChannels * 2, lim);
 
-    if (g_telemetryUICallback == nullptr)
+    auto *program = new MixProgram;
+    if (!compileMixer(sw, swThreshold, swCount, mix, params, mixCount, limits ? lim : nullptr, *program))
     {
-        LOGI("Failed to find onTelemetryData method");
+        delete program;
+        LOGI("❌ MIXER: rejected configuration (%d switches, %d mixes)", swCount, mixCount);
+        return JNI_FALSE;
+    }
+    int instructions = program->count;
+    g_mixer.publish(program);
+    LOGI("🎛️ MIXER: %d switches, %d mixes compiled to %d instructions", swCount, mixCount, instructions);
+    return JNI_TRUE;
+}
+
+// ---- Button configuration ----
+// mode: 0 momentary, 1 toggle, 2 long press
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_elrsotg_MainActivity_nativeSetButtonMode(JNIEnv *, jclass, jint button, jint mode, jint debounceMs,
+                                                          jint longPressMs)
+{
+    if (button < 0 || button >= 32 || mode < BUTTON_MOMENTARY || mode > BUTTON_LONG_PRESS)
+        return JNI_FALSE;
+    g_buttonModes[button] = mode;
+    g_buttonDebounceNs[button] = int64_t(std::max(0, (int)debounceMs)) * 1000000;
+    g_buttonLongPressNs[button] = int64_t(std::max(0, (int)longPressMs)) * 1000000;
+    LOGI("🔘 BUTTON_MODE: button=%d mode=%d debounce=%dms longPress=%dms", (int)button, (int)mode,
+         (int)debounceMs, (int)longPressMs);
+    return JNI_TRUE;
+}
+
+// Layout: [currentMask, eventsQueued, eventsDropped]
+extern "C" JNIEXPORT jlongArray JNICALL
+Java_com_example_elrsotg_MainActivity_nativeGetButtonStats(JNIEnv *env, jclass)
+{
+    jlong stats[3] = {(jlong)g_buttonMask.load(), (jlong)g_buttonEvents.load(), (jlong)g_buttonDropped.load()};
+    jlongArray arr = env->NewLongArray(3);
+    env->SetLongArrayRegion(arr, 0, 3, stats);
+    return arr;
+}
+
+// ---- Stick filter configuration ----
+// axis: 0 roll, 1 pitch, 2 yaw, 3 throttle; type: 0 none, 1 one-euro, 2 biquad, 3 median-of-3
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_elrsotg_MainActivity_nativeSetAxisFilter(JNIEnv *, jclass, jint axis, jint type, jfloat p1, jfloat p2,
+                                                          jfloat p3)
+{
+    if (axis < 0 || axis >= kResampledAxes || type < FILTER_NONE || type > FILTER_MEDIAN3)
+        return JNI_FALSE;
+    static std::mutex configMutex;
+    static FilterSettings current = {};
+    std::lock_guard<std::mutex> lock(configMutex);
+    current.version++;
+    current.type[axis] = type;
+    current.p[axis][0] = p1;
+    current.p[axis][1] = p2;
+    current.p[axis][2] = p3;
+    g_filterSettings.publish(new FilterSettings(current));
+    LOGI("🔧 FILTER: axis=%d type=%d p=%.2f/%.2f/%.2f", (int)axis, (int)type, p1, p2, p3);
+    return JNI_TRUE;
+}
+
+// Layout: DC group delay per axis in ns at the current TX rate [roll, pitch, yaw, throttle]
+extern "C" JNIEXPORT jlongArray JNICALL
+Java_com_example_elrsotg_MainActivity_nativeGetFilterDelays(JNIEnv *env, jclass)
+{
+    jlong delays[kResampledAxes];
+    for (int i = 0; i < kResampledAxes; i++)
+        delays[i] = (jlong)g_filterDelayNs[i].load();
+    jlongArray arr = env->NewLongArray(kResampledAxes);
+    env->SetLongArrayRegion(arr, 0, kResampledAxes, delays);
+    return arr;
+}
+
+// Touch->wire latency of the on-screen sticks, same layout as nativeGetInputLatencyStats.
+// Fills the caller's array so the view can poll it without allocating.
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_TouchStickView_nativeReadTouchLatencyStats(JNIEnv *env, jclass, jlongArray out)
+{
+    jlong stats[5] = {
+        (jlong)g_touchLatencyHist.count.load(),
+        (jlong)g_touchLatencyHist.percentileNs(50),
+        (jlong)g_touchLatencyHist.percentileNs(95),
+        (jlong)g_touchLatencyHist.percentileNs(99),
+        (jlong)g_touchLatencyHist.maxNs.load()};
+    if (out && env->GetArrayLength(out) >= 5)
+        env->SetLongArrayRegion(out, 0, 5, stats);
+}
+
+// ---- IMU tilt JNI ----
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_elrsotg_ImuTiltSource_nativeStartImu(JNIEnv *, jclass)
+{
+    ImuChannel *ch = openImuChannel();
+    if (!ch)
+        return JNI_FALSE;
+    g_imuChannel.publish(ch);
+    return JNI_TRUE;
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_ImuTiltSource_nativeStopImu(JNIEnv *, jclass)
+{
+    g_imuChannel.publish(nullptr); // closes the channel once the TX thread is out of it
+    g_imuRoll = 0.0f;
+    g_imuPitch = 0.0f;
+    LOGI("📱 IMU: stopped");
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_ImuTiltSource_nativeRecenterImu(JNIEnv *, jclass)
+{
+    g_imuRecenter = true;
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_ImuTiltSource_nativeConfigureImu(JNIEnv *, jclass, jfloat fullScaleDeg, jfloat gain,
+                                                          jfloat limit, jint blend)
+{
+    g_imuFullScaleRad = std::clamp(float(fullScaleDeg), 1.0f, 90.0f) * float(M_PI) / 180.0f;
+    g_imuGain = gain;
+    g_imuLimit = std::clamp(float(limit), 0.0f, 1.0f);
+    g_imuBlend = blend == IMU_BLEND_STICK_PRIORITY ? IMU_BLEND_STICK_PRIORITY : IMU_BLEND_ADD;
+    LOGI("📱 IMU: fullScale=%.0fdeg gain=%.2f limit=%.2f blend=%d", fullScaleDeg, gain, limit, (int)g_imuBlend.load());
+}
+
+// Layout: [events, rollMilli, pitchMilli, sampleAgeUs(-1 = none)]
+extern "C" JNIEXPORT jlongArray JNICALL
+Java_com_example_elrsotg_ImuTiltSource_nativeGetImuStats(JNIEnv *env, jclass)
+{
+    // Sensor timestamps are on CLOCK_BOOTTIME
+    timespec ts{};
+    clock_gettime(CLOCK_BOOTTIME, &ts);
+    int64_t boot = int64_t(ts.tv_sec) * 1000000000LL + ts.tv_nsec;
+    int64_t stamp = g_imuTimestampNs.load();
+    jlong stats[4] = {(jlong)g_imuEvents.load(), (jlong)std::lround(g_imuRoll.load() * 1000.0f),
+                      (jlong)std::lround(g_imuPitch.load() * 1000.0f), (jlong)(stamp ? (boot - stamp) / 1000 : -1)};
+    jlongArray arr = env->NewLongArray(4);
+    env->SetLongArrayRegion(arr, 0, 4, stats);
+    return arr;
+}
+
+// ---- Input source registry JNI ----
+extern "C" JNIEXPORT jint JNICALL
+Java_com_example_elrsotg_InputSources_nativeRegister(JNIEnv *, jclass, jint priority, jint axisMask, jlong staleMs,
+                                                    jboolean trackDrift)
+{
+    int id = registerInputSource(priority, axisMask, int64_t(staleMs) * 1000000, trackDrift, monoNowNs());
+    LOGI("🕹️ INPUT_SOURCE: registered slot %d priority=%d axes=0x%X stale=%lldms", id, (int)priority, (int)axisMask,
+         (long long)staleMs);
+    return id;
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_InputSources_nativeUnregister(JNIEnv *, jclass, jint id)
+{
+    unregisterInputSource(id);
+    LOGI("🕹️ INPUT_SOURCE: released slot %d", (int)id);
+}
+
+// Keeps an attached source that reports only on change from going stale
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_InputSources_nativeHeartbeat(JNIEnv *, jclass, jint id)
+{
+    if (inputSourceActive(id))
+        g_inputSources[id].lastSeenNs.store(monoNowNs(), std::memory_order_relaxed);
+}
+
+// -1 hands control back to priority arbitration
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_elrsotg_InputSources_nativeTakeover(JNIEnv *, jclass, jint id)
+{
+    if (id >= 0 && !inputSourceActive(id))
+        return JNI_FALSE;
+    g_inputTakeover = id;
+    LOGI("🕹️ INPUT_SOURCE: takeover %s slot %d", id >= 0 ? "by" : "released from", (int)id);
+    return JNI_TRUE;
+}
+
+// Layout: [takeover, winnerRoll, winnerPitch, winnerYaw, winnerThrottle, activeSources] (-1 = none)
+extern "C" JNIEXPORT jlongArray JNICALL
+Java_com_example_elrsotg_InputSources_nativeGetArbitration(JNIEnv *env, jclass)
+{
+    jlong stats[2 + kResampledAxes];
+    stats[0] = g_inputTakeover.load();
+    int active = 0;
+    for (int i = 0; i < kMaxInputSources; i++)
+        active += inputSourceActive(i);
+    for (int a = 0; a < kResampledAxes; a++)
+        stats[1 + a] = g_inputWinner[a].load();
+    stats[1 + kResampledAxes] = active;
+    jlongArray arr = env->NewLongArray(2 + kResampledAxes);
+    env->SetLongArrayRegion(arr, 0, 2 + kResampledAxes, stats);
+    return arr;
+}
+
+// ---- Calibration JNI ----
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_CalibrationStore_nativeApplyCalibration(JNIEnv *env, jclass, jint source, jfloatArray minCenterMax)
+{
+    if (!inputSourceActive(source) || !minCenterMax || env->GetArrayLength(minCenterMax) < kResampledAxes * 3)
+        return;
+    float mcm[kResampledAxes * 3];
+    env->GetFloatArrayRegion(minCenterMax, 0, kResampledAxes * 3, mcm);
+    CalAxis axes[kResampledAxes];
+    compileCalibration(mcm, axes);
+    // The TX thread seeds its tracked centres from this record when it sees the new sequence
+    g_inputSources[source].cal.write(axes);
+    LOGI("🎯 CALIBRATION: slot %d roll %.2f/%.2f/%.2f pitch %.2f/%.2f/%.2f yaw %.2f/%.2f/%.2f thr %.2f..%.2f", (int)source,
+         mcm[0], mcm[1], mcm[2], mcm[3], mcm[4], mcm[5], mcm[6], mcm[7], mcm[8], mcm[9], mcm[11]);
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_CalibrationStore_nativeBeginLearning(JNIEnv *, jclass, jint source)
+{
+    if (!inputSourceActive(source))
         return;
+    InputSource &src = g_inputSources[source];
+    for (int a = 0; a < kResampledAxes; a++)
+    {
+        src.seenMin[a] = INFINITY;
+        src.seenMax[a] = -INFINITY;
     }
+    src.learning = true;
+    LOGI("🎯 CALIBRATION: learning slot %d - move every axis to both ends, then release", (int)source);
+}
 
-    // Store the class reference
-    g_telemetryClass = env->NewGlobalRef(clazz);
+// Ends a run. Centres are the raw values now (sticks released); an axis that
+// travelled less than half its nominal range keeps nominal extremes. Writes
+// [min, centre, max] per axis into minCenterMax; false if nothing moved.
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_elrsotg_CalibrationStore_nativeFinishLearning(JNIEnv *env, jclass, jint source,
+                                                               jfloatArray minCenterMax)
+{
+    if (!inputSourceActive(source) || !minCenterMax || env->GetArrayLength(minCenterMax) < kResampledAxes * 3)
+        return JNI_FALSE;
+    InputSource &src = g_inputSources[source];
+    src.learning = false;
+    StickState now;
+    src.snap.read(now);
+    float mcm[kResampledAxes * 3];
+    int learned = 0;
+    for (int a = 0; a < kResampledAxes; a++)
+    {
+        float lo = src.seenMin[a].load(), hi = src.seenMax[a].load();
+        bool moved = hi - lo >= (a == STICK_THR ? 0.5f : 1.0f);
+        learned += moved;
+        mcm[a * 3] = moved ? lo : kIdentityCalibration[a * 3];
+        mcm[a * 3 + 1] = a == STICK_THR ? 0.0f : std::clamp(now.ch[a], -0.5f, 0.5f);
+        mcm[a * 3 + 2] = moved ? hi : kIdentityCalibration[a * 3 + 2];
+    }
+    LOGI("🎯 CALIBRATION: slot %d learned %d/%d axes", (int)source, learned, kResampledAxes);
+    if (learned == 0)
+        return JNI_FALSE;
+    env->SetFloatArrayRegion(minCenterMax, 0, kResampledAxes * 3, mcm);
+    return JNI_TRUE;
+}
 
-    LOGI("Telemetry UI callback registered successfully");
+// Drift-tracked centres for persisting; throttle entry is unused
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_elrsotg_CalibrationStore_nativeReadLiveCenters(JNIEnv *env, jclass, jint source, jfloatArray out)
+{
+    if (source < 0 || source >= kMaxInputSources || !out || env->GetArrayLength(out) < kResampledAxes)
+        return;
+    float centers[kResampledAxes];
+    for (int a = 0; a < kResampledAxes; a++)
+        centers[a] = g_inputSources[source].liveCenter[a].load();
+    env->SetFloatArrayRegion(out, 0, kResampledAxes, centers);
 }
 
+// ---- Telemetry history JNI ----
 extern "C" JNIEXPORT void JNICALL
-Java_com_example_elrsotg_MainActivity_nativeSetDebugLogging(JNIEnv *, jclass, jboolean enabled)
+Java_com_example_elrsotg_TelemetryHistory_nativeReset(JNIEnv *, jclass)
 {
-    g_debugLogging.store(enabled);
-    if (enabled)
+    std::lock_guard<std::mutex> lock(g_historyMutex);
+    for (auto &c : g_history)
+        c.count = 0;
+    g_historyEpochNs = monoNowNs();
+    LOGI("📈 TELEMETRY_HISTORY: cleared");
+}
+
+// out: [min, max, mean, samples] over the last windowMs (<= 0: all retained)
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_elrsotg_TelemetryHistory_nativeWindowStats(JNIEnv *env, jclass, jint field, jlong windowMs,
+                                                            jfloatArray out)
+{
+    if (field < 0 || field >= HIST_FIELD_COUNT || !out || env->GetArrayLength(out) < 4)
+        return JNI_FALSE;
+    HistAgg agg;
     {
-        LOGI("🔍 DEBUG_LOGGING: ✅ ENABLED - Detailed TX/RX logging active");
-        LOGI("🔍 DEBUG_MODE: Will show raw hex data for all USB communications");
+        std::lock_guard<std::mutex> lock(g_historyMutex);
+        const HistoryColumn &c = g_history[field];
+        if (!c.capacity)
+            return JNI_FALSE;
+        uint64_t a, b;
+        historyWindow(c, windowMs, historyNowMs(), a, b);
+        agg = c.range(a, b);
     }
-    else
+    if (!agg.n)
+        return JNI_FALSE;
+    jfloat stats[4] = {agg.min, agg.max, jfloat(agg.sum / agg.n), jfloat(agg.n)};
+    env->SetFloatArrayRegion(out, 0, 4, stats);
+    return JNI_TRUE;
+}
+
+// Splits the last windowMs into minMax.length / 2 equal time buckets (oldest
+// first) and writes [min, max] per bucket, NaN where a bucket has no samples.
+// Returns the number of non-empty buckets.
+extern "C" JNIEXPORT jint JNICALL
+Java_com_example_elrsotg_TelemetryHistory_nativeDownsample(JNIEnv *env, jclass, jint field, jlong windowMs,
+                                                           jfloatArray minMax)
+{
+    if (field < 0 || field >= HIST_FIELD_COUNT || !minMax || windowMs <= 0)
+        return 0;
+    int buckets = std::min(env->GetArrayLength(minMax) / 2, kHistMaxBuckets);
+    if (buckets <= 0)
+        return 0;
+    int filled = 0;
     {
-        LOGI("🔍 DEBUG_LOGGING: ❌ DISABLED - Debug logging stopped");
+        std::lock_guard<std::mutex> lock(g_historyMutex);
+        const HistoryColumn &c = g_history[field];
+        if (!c.capacity)
+            return 0;
+        int32_t nowMs = historyNowMs();
+        uint64_t a, end;
+        historyWindow(c, windowMs, nowMs, a, end);
+        int64_t t0 = int64_t(nowMs) - windowMs;
+        for (int k = 0; k < buckets; k++)
+        {
+            int64_t tEnd = t0 + windowMs * (k + 1) / buckets;
+            uint64_t b = k == buckets - 1 ? end : c.lowerBound(int32_t(std::max<int64_t>(tEnd, INT32_MIN)), a, end);
+            HistAgg agg = c.range(a, b);
+            g_historyScratch[2 * k] = agg.n ? agg.min : NAN;
+            g_historyScratch[2 * k + 1] = agg.n ? agg.max : NAN;
+            filled += agg.n ? 1 : 0;
+            a = b;
+        }
+        env->SetFloatArrayRegion(minMax, 0, buckets * 2, g_historyScratch);
     }
+    return filled;
 }
@@ -0,0 +1,157 @@
+package com.example.elrsotg;
+
+import android.content.Context;
+import android.util.SparseArray;
+import android.view.InputDevice;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+// Per-device gamepad calibration: [min, centre, max] per axis (roll, pitch,
+// yaw, throttle) in raw units. Entries are keyed by InputDevice descriptor and,
+// as a fallback for another unit of the same model, by VID:PID. The native side
+// turns them into scale/offset factors applied on the TX thread and keeps the
+// stick centres tracking drift while idle.
+//
+// File layout (big-endian): "ECAL", u8 version, u16 count, then per entry
+// writeUTF(key) + 12 floats.
+public final class CalibrationStore {
+    private static native void nativeApplyCalibration(int source, float[] minCenterMax);
+    private static native void nativeBeginLearning(int source);
+    private static native boolean nativeFinishLearning(int source, float[] minCenterMax);
+    private static native void nativeReadLiveCenters(int source, float[] centers);
+
+    private static final int MAGIC = 0x4543414C; // "ECAL"
+    private static final int VERSION = 1;
+    private static final int VALUES = 12;
+    private static final String FILE_NAME = "calibration.bin";
+
+    private static final Map<String, float[]> entries = new HashMap<>();
+    // source slot -> keys its calibration is saved under; UI thread only
+    private static final SparseArray<String[]> sourceKeys = new SparseArray<>();
+    private static File file;
+
+    private CalibrationStore() {}
+
+    public static synchronized void load(Context context) {
+        file = new File(context.getFilesDir(), FILE_NAME);
+        entries.clear();
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+                android.util.Log.w("ELRS", "Calibration store: unknown format, ignoring");
+                return;
+            }
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                float[] v = new float[VALUES];
+                for (int k = 0; k < VALUES; k++) v[k] = in.readFloat();
+                entries.put(key, v);
+            }
+            android.util.Log.d("ELRS", "Calibration store: " + count + " entries loaded");
+        } catch (IOException e) {
+            android.util.Log.e("ELRS", "Calibration store: load failed", e);
+        }
+    }
+
+    private static synchronized void save() {
+        if (file == null) return;
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeShort(entries.size());
+            for (Map.Entry<String, float[]> e : entries.entrySet()) {
+                out.writeUTF(e.getKey());
+                for (float f : e.getValue()) out.writeFloat(f);
+            }
+        } catch (IOException e) {
+            android.util.Log.e("ELRS", "Calibration store: save failed", e);
+            return;
+        }
+        if (!tmp.renameTo(file)) android.util.Log.e("ELRS", "Calibration store: rename failed");
+    }
+
+    private static String[] keysFor(InputDevice dev) {
+        return new String[]{
+            "d:" + dev.getDescriptor(),
+            String.format("m:%04X:%04X", dev.getVendorId(), dev.getProductId())
+        };
+    }
+
+    // Called once when a device gets its input source
+    public static synchronized void applyTo(int source, InputDevice dev) {
+        if (source == InputSources.NONE || dev == null) return;
+        String[] keys = keysFor(dev);
+        sourceKeys.put(source, keys);
+        float[] v = entries.get(keys[0]);
+        if (v == null) v = entries.get(keys[1]);
+        if (v == null) return;
+        try {
+            nativeApplyCalibration(source, v);
+        } catch (UnsatisfiedLinkError ignored) {
+        }
+    }
+
+    public static void forget(int source) {
+        sourceKeys.remove(source);
+    }
+
+    public static void beginCalibration(int source) {
+        if (source == InputSources.NONE) return;
+        try {
+            nativeBeginLearning(source);
+        } catch (UnsatisfiedLinkError ignored) {
+        }
+    }
+
+    // Sticks must be released when this is called: their rest position is the centre
+    public static synchronized boolean finishCalibration(int source) {
+        String[] keys = sourceKeys.get(source);
+        float[] v = new float[VALUES];
+        if (keys == null) return false;
+        try {
+            if (!nativeFinishLearning(source, v)) return false;
+            nativeApplyCalibration(source, v);
+        } catch (UnsatisfiedLinkError e) {
+            return false;
+        }
+        entries.put(keys[0], v);
+        entries.put(keys[1], v.clone());
+        save();
+        return true;
+    }
+
+    // Writes drift-tracked centres back into the stored entries, under both the
+    // descriptor and the VID:PID fallback key the source was applied from
+    public static synchronized void persistDrift() {
+        boolean changed = false;
+        float[] centers = new float[4];
+        for (int i = 0; i < sourceKeys.size(); i++) {
+            String[] keys = sourceKeys.valueAt(i);
+            if (entries.get(keys[0]) == null && entries.get(keys[1]) == null) continue;
+            try {
+                nativeReadLiveCenters(sourceKeys.keyAt(i), centers);
+            } catch (UnsatisfiedLinkError e) {
+                return;
+            }
+            for (String key : keys) {
+                float[] v = entries.get(key);
+                if (v == null) continue;
+                for (int a = 0; a < 3; a++) {
+                    if (Math.abs(v[a * 3 + 1] - centers[a]) > 0.002f) {
+                        v[a * 3 + 1] = centers[a];
+                        changed = true;
+                    }
+                }
+            }
+        }
+        if (changed) save();
+    }
+}
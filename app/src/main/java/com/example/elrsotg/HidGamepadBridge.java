@@ -0,0 +1,94 @@
+package com.example.elrsotg;
+
+import android.hardware.usb.*;
+
+// Optional direct HID path for USB gamepads. Claiming the HID interface detaches
+// the kernel driver, so the pad disappears from InputFlinger; a native thread
+// reads its interrupt IN endpoint over usbfs, parses reports with the device's
+// own report descriptor and feeds sticks/buttons straight to the TX thread.
+// Its sticks are an input source above Android gamepads; while it is active,
+// Java-side nativePushButton input is ignored (the button queue has one producer).
+public class HidGamepadBridge {
+    private static UsbDeviceConnection conn;
+    private static UsbInterface claimed;
+
+    private static native boolean nativeStartHid(int fd, int endpoint, int maxPacket, byte[] reportDescriptor);
+    private static native void nativeStopHid();
+    // [reports, changedReports, errors, mappedFields, msSinceLastReport(-1 = never)]
+    public static native long[] nativeGetHidStats();
+
+    private static final int USB_CLASS_HID = 3;
+    private static final int HID_REPORT_DESCRIPTOR = 0x22;
+
+    // 8BitDo Ultimate Mobile Gaming Controller, plus any HID interface with an interrupt IN endpoint
+    public static boolean isSupported(UsbDevice dev) {
+        if (dev.getVendorId() == 0x2DC8 && dev.getProductId() == 0x301F) return true;
+        return findHidInterface(dev) != null;
+    }
+
+    private static UsbInterface findHidInterface(UsbDevice dev) {
+        for (int i = 0; i < dev.getInterfaceCount(); i++) {
+            UsbInterface iface = dev.getInterface(i);
+            if (iface.getInterfaceClass() == USB_CLASS_HID && findInterruptIn(iface) != null) return iface;
+        }
+        return null;
+    }
+
+    private static UsbEndpoint findInterruptIn(UsbInterface iface) {
+        for (int e = 0; e < iface.getEndpointCount(); e++) {
+            UsbEndpoint ep = iface.getEndpoint(e);
+            if (ep.getType() == UsbConstants.USB_ENDPOINT_XFER_INT && ep.getDirection() == UsbConstants.USB_DIR_IN) {
+                return ep;
+            }
+        }
+        return null;
+    }
+
+    public static synchronized boolean open(UsbManager mgr, UsbDevice dev) {
+        close();
+        UsbInterface iface = findHidInterface(dev);
+        if (iface == null) return false;
+        conn = mgr.openDevice(dev);
+        if (conn == null) return false;
+        if (!conn.claimInterface(iface, true)) {
+            close();
+            return false;
+        }
+        claimed = iface;
+
+        // GET_DESCRIPTOR(Report) on the interface
+        byte[] buf = new byte[1024];
+        int len = conn.controlTransfer(0x81, 0x06, HID_REPORT_DESCRIPTOR << 8, iface.getId(), buf, buf.length, 1000);
+        if (len <= 0) {
+            android.util.Log.e("ELRS", "HID: report descriptor read failed");
+            close();
+            return false;
+        }
+        byte[] descriptor = java.util.Arrays.copyOf(buf, len);
+
+        UsbEndpoint in = findInterruptIn(iface);
+        if (!nativeStartHid(conn.getFileDescriptor(), in.getAddress(), in.getMaxPacketSize(), descriptor)) {
+            android.util.Log.e("ELRS", "HID: report layout not usable as a gamepad");
+            close();
+            return false;
+        }
+        android.util.Log.i("ELRS", String.format("HID: direct reader on %04X:%04X interface %d, %d-byte descriptor",
+            dev.getVendorId(), dev.getProductId(), iface.getId(), len));
+        return true;
+    }
+
+    public static synchronized void close() {
+        if (conn != null) {
+            // Native reader must stop using the fd before it is closed
+            nativeStopHid();
+            try { if (claimed != null) conn.releaseInterface(claimed); } catch (Exception ignored) {}
+            try { conn.close(); } catch (Exception ignored) {}
+        }
+        claimed = null;
+        conn = null;
+    }
+
+    public static synchronized boolean isOpen() {
+        return conn != null;
+    }
+}
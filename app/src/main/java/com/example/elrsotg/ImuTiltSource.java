@@ -0,0 +1,59 @@
+package com.example.elrsotg;
+
+// Tilt-to-fly: phone orientation (game rotation vector) mapped onto roll and
+// pitch. The sensor is streamed through a shared-memory direct channel that
+// the native TX thread reads once per tick, so no SensorEventListener runs and
+// no per-event work happens in Java. Tilt is blended with the stick values
+// after resampling and before filtering/shaping.
+public final class ImuTiltSource {
+    public static final int BLEND_ADD = 0;            // tilt + sticks, clamped
+    public static final int BLEND_STICK_PRIORITY = 1; // tilt only while the stick is centred
+
+    private static native boolean nativeStartImu();
+    private static native void nativeStopImu();
+    private static native void nativeRecenterImu();
+    private static native void nativeConfigureImu(float fullScaleDeg, float gain, float limit, int blend);
+    // [events, rollMilli, pitchMilli, sampleAgeUs(-1 = none)]
+    public static native long[] nativeGetImuStats();
+
+    private static boolean running;
+
+    private ImuTiltSource() {}
+
+    // Level is wherever the phone is held when this is called
+    public static synchronized boolean start() {
+        if (running) return true;
+        try {
+            running = nativeStartImu();
+        } catch (UnsatisfiedLinkError e) {
+            android.util.Log.e("ELRS", "IMU start failed", e);
+            running = false;
+        }
+        return running;
+    }
+
+    public static synchronized void stop() {
+        if (!running) return;
+        running = false;
+        nativeStopImu();
+    }
+
+    public static synchronized boolean isRunning() {
+        return running;
+    }
+
+    // Takes the current orientation as the new level reference
+    public static void recenter() {
+        if (isRunning()) nativeRecenterImu();
+    }
+
+    // fullScaleDeg: tilt giving full deflection at gain 1. A negative gain
+    // inverts both axes (other landscape orientation). limit caps |output|.
+    public static void configure(float fullScaleDeg, float gain, float limit, int blend) {
+        try {
+            nativeConfigureImu(fullScaleDeg, gain, limit, blend);
+        } catch (UnsatisfiedLinkError e) {
+            android.util.Log.e("ELRS", "IMU configure failed", e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.elrsotg;
+
+import android.util.SparseIntArray;
+
+// Registry of stick producers. Every source (each attached gamepad, the touch
+// sticks, the direct HID reader) owns a native slot with its own timestamped
+// snapshot and history. The TX thread picks a winner per axis each tick:
+// an explicit takeover first, then the highest priority non-stale source,
+// ties going to the source registered first.
+public final class InputSources {
+    // Priorities: higher wins. Touch sticks only exist while shown, which is an
+    // explicit choice, so they rank above gamepads; the native HID reader uses 30.
+    public static final int PRIORITY_GAMEPAD = 20;
+    public static final int PRIORITY_TOUCH = 40;
+
+    // Android gamepads report only on change, so an idle pad is kept live by
+    // heartbeat() while it stays attached; one that vanishes without a removal
+    // callback stops winning axes after this long.
+    public static final long GAMEPAD_STALE_MS = 500;
+    private static final long HEARTBEAT_INTERVAL_NS = 100_000_000L;
+
+    public static final int AXIS_ROLL = 1, AXIS_PITCH = 2, AXIS_YAW = 4, AXIS_THROTTLE = 8;
+    public static final int AXES_ALL = AXIS_ROLL | AXIS_PITCH | AXIS_YAW | AXIS_THROTTLE;
+
+    public static final int NONE = -1;
+
+    private static native int nativeRegister(int priority, int axisMask, long staleMs, boolean trackDrift);
+    private static native void nativeUnregister(int source);
+    private static native boolean nativeTakeover(int source);
+    private static native void nativeHeartbeat(int source);
+    // [takeover, winnerRoll, winnerPitch, winnerYaw, winnerThrottle, activeSources] (-1 = none)
+    public static native long[] nativeGetArbitration();
+
+    // InputDevice id -> source slot; UI thread only
+    private static final SparseIntArray deviceSources = new SparseIntArray();
+    private static long lastHeartbeatNs;
+
+    private InputSources() {}
+
+    // staleMs: after this long without a sample or heartbeat the source stops
+    // winning axes (0 = never). trackDrift: physical sticks whose rest position
+    // may wander; their centres re-zero while idle (see CalibrationStore).
+    public static int register(int priority, int axisMask, long staleMs, boolean trackDrift) {
+        try {
+            return nativeRegister(priority, axisMask, staleMs, trackDrift);
+        } catch (UnsatisfiedLinkError e) {
+            return NONE;
+        }
+    }
+
+    public static void unregister(int source) {
+        if (source == NONE) return;
+        try {
+            nativeUnregister(source);
+        } catch (UnsatisfiedLinkError ignored) {
+        }
+    }
+
+    // Slot for an Android input device, registered on first use
+    public static int forDevice(int deviceId) {
+        int source = deviceSources.get(deviceId, NONE);
+        if (source == NONE) {
+            source = register(PRIORITY_GAMEPAD, AXES_ALL, GAMEPAD_STALE_MS, true);
+            if (source != NONE) {
+                deviceSources.put(deviceId, source);
+                // A known pad gets its stored calibration before its first sample
+                CalibrationStore.applyTo(source, android.view.InputDevice.getDevice(deviceId));
+            }
+        }
+        return source;
+    }
+
+    // Marks every gamepad that is still attached as live; call once per display
+    // frame (UI thread), it rate-limits itself
+    public static void heartbeat(long nowNs) {
+        if (nowNs - lastHeartbeatNs < HEARTBEAT_INTERVAL_NS) return;
+        lastHeartbeatNs = nowNs;
+        for (int i = 0; i < deviceSources.size(); i++) {
+            if (android.view.InputDevice.getDevice(deviceSources.keyAt(i)) == null) continue;
+            try {
+                nativeHeartbeat(deviceSources.valueAt(i));
+            } catch (UnsatisfiedLinkError e) {
+                return;
+            }
+        }
+    }
+
+    public static int forDeviceIfKnown(int deviceId) {
+        return deviceSources.get(deviceId, NONE);
+    }
+
+    public static void removeDevice(int deviceId) {
+        int source = deviceSources.get(deviceId, NONE);
+        if (source == NONE) return;
+        deviceSources.delete(deviceId);
+        CalibrationStore.persistDrift();
+        CalibrationStore.forget(source);
+        unregister(source);
+    }
+
+    // Pins every axis the source provides to it until released or the source goes away
+    public static boolean takeover(int source) {
+        try {
+            return nativeTakeover(source);
+        } catch (UnsatisfiedLinkError e) {
+            return false;
+        }
+    }
+
+    public static void releaseTakeover() {
+        takeover(NONE);
+    }
+}
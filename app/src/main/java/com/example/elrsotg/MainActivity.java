@@ -10,6 +10,7 @@ import android.os.*;
 import android.view.*;
 import android.widget.Button;
 import android.widget.TextView;
+import dalvik.annotation.optimization.FastNative;
 
 public class MainActivity extends Activity implements InputManager.InputDeviceListener {
     static { System.loadLibrary("elrs_otg"); }
@@ -30,13 +31,20 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
     private TextView tvControllerName;
     
     // TX Action Buttons
-    private Button btnPair, btnIncSignal, btnDecSignal;
-    private Button btnBind, btnReset, btnModelSelect;
+    private Button btnPair, btnIncSignal, btnDecSignal, btnTouchSticks, btnTilt;
+    private TouchStickView touchSticks;
+    private Button btnBind, btnReset, btnModelSelect, btnPacketRate;
     private TextView tvDeviceDetails;
     
     // TX/RX Graph
     private TxRxGraphView txRxGraph;
-    private TextView tvTxRxStatus, tvPacketRate;
+    private TextView tvTxRxStatus, tvPacketRate, tvInputLatency;
+
+    // Telemetry panel, refreshed from TelemetrySnapshot once per display frame
+    private TextView tvRSSI, tvLinkQuality, tvBattery, tvFlightMode;
+    private int shownRssi = Integer.MIN_VALUE, shownLq = Integer.MIN_VALUE, shownBatteryDv = Integer.MIN_VALUE;
+    private final StringBuilder flightModeText = new StringBuilder(24);
+    private final float[] historyStats = new float[4]; // debug monitor thread only
     
     // 3D View and Camera
     private TextView tv3DStatus, tvCameraStatus;
@@ -61,10 +69,27 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
     private volatile boolean superGConnected = false;
     private volatile boolean controllerConnected = false;
     private volatile boolean usbPermissionRequested = false;
+    // Direct HID mode: the pad is read natively over usbfs instead of via InputFlinger
+    private volatile boolean directHidRequested = false;
     private volatile boolean debugLoggingEnabled = false;
 
     // JNI
-    public static native void nativeSetAxes(float roll, float pitch, float yaw, float thr);
+    // eventTimeNs: MotionEvent timestamp (CLOCK_MONOTONIC) for input-to-wire latency.
+    // Called per motion event: bound with RegisterNatives and @FastNative.
+    @FastNative
+    public static native void nativeSetAxes(int source, float roll, float pitch, float yaw, float thr, long eventTimeNs);
+    // Button edges for the native button queue (mixer button sources); registered, @FastNative
+    @FastNative
+    public static native boolean nativePushButton(int button, boolean down, long eventTimeNs);
+    // mode: 0 momentary, 1 toggle, 2 long press
+    public static native boolean nativeSetButtonMode(int button, int mode, int debounceMs, int longPressMs);
+    // [currentMask, eventsQueued, eventsDropped]
+    public static native long[] nativeGetButtonStats();
+    // Per-axis stick filter. axis: 0 roll, 1 pitch, 2 yaw, 3 throttle.
+    // type: 0 none, 1 one-euro (minCutoffHz, beta, dCutoffHz), 2 biquad low-pass (cutoffHz, Q), 3 median-of-3
+    public static native boolean nativeSetAxisFilter(int axis, int type, float p1, float p2, float p3);
+    // DC group delay per axis in ns at the current TX rate
+    public static native long[] nativeGetFilterDelays();
     public static native void nativeStart();
     public static native void nativeStop();
     public static native boolean nativeSendCommand(String command);
@@ -77,10 +102,37 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
     public static native boolean nativeIsLinkOk();
     public static native void nativeSetSafetyOverride(boolean override);
     public static native void nativeEmergencyStop();
-    public static native void registerTelemetryCallback();
     public static native void nativeSetDebugLogging(boolean enabled);
 
+    // TX scheduler timing: [frames, minNs, meanNs, p99Ns, maxNs, missedDeadlines, targetPeriodNs]
+    public static native long[] nativeGetTxTimingStats();
+    public static native void nativeResetTxTimingStats();
+    // TX multiplexer queue: [queuedCommand, queuedParam, sent, rejected]
+    public static native long[] nativeGetTxQueueStats();
+    // Handset timing sync: [enabled, locked, moduleRateNs, phaseErrNs, appliedPeriodNs, reports, msSinceLastReport]
+    public static native long[] nativeGetTimingSyncStats();
+    public static native void nativeSetTimingSyncEnabled(boolean enabled);
+    // Telemetry parser: [framesOk, crcErrors, resyncs, bytesDiscarded]
+    public static native long[] nativeGetCrsfParserStats();
+    // Packet-rate profile (ELRS air rates); returns false for unsupported rates
+    public static native boolean nativeSetPacketRate(int hz);
+    public static native int nativeGetPacketRate();
+
+    // Input-to-wire latency: [samples, p50Ns, p95Ns, p99Ns, maxNs]
+    public static native long[] nativeGetInputLatencyStats();
+    public static native void nativeResetInputLatencyStats();
+    // Resample stick history to each TX frame's send time (default on)
+    public static native void nativeSetInputResampling(boolean enabled);
+    // Stick shaping: axes = roll, pitch, yaw x {deadzone, expo, rate}; throttleCurve =
+    // output at evenly spaced inputs (2..16 points). Swapped in atomically.
+    public static native boolean nativeSetShapingProfile(float[] axes, float[] throttleCurve,
+                                                         float throttleDeadzone, float throttleIdle);
+
+    private static final int[] PACKET_RATES_HZ = {50, 100, 150, 250, 333, 500, 1000};
+
     private int controllerCheckCounter = 0;
+    private int txTimingCounter = 0;
+    private String txTimingText = "TX: --";
 
     private static final long DEVICE_MONITOR_INTERVAL_MS = 1000L;
     private HandlerThread deviceMonitorThread;
@@ -91,6 +143,56 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
             boolean superG = ensureSuperGConnected();
             updateSuperGStatus(superG);
 
+            if (debugLoggingEnabled && superG) {
+                long[] w = UsbBridge.getWriteWaitStats();
+                android.util.Log.d("ELRS", String.format("USB write lock wait: writes=%d avg=%.1fus max=%.1fus",
+                    w[0], w[0] > 0 ? w[1] / 1000.0 / w[0] : 0.0, w[2] / 1000.0));
+                long[] q = nativeGetTxQueueStats();
+                android.util.Log.d("ELRS", String.format("TX queue: command=%d param=%d sent=%d rejected=%d",
+                    q[0], q[1], q[2], q[3]));
+                long[] btn = nativeGetButtonStats();
+                android.util.Log.d("ELRS", String.format("Buttons: mask=0x%08X events=%d dropped=%d",
+                    btn[0], btn[1], btn[2]));
+                long[] fd = nativeGetFilterDelays();
+                android.util.Log.d("ELRS", String.format("Filter delay: roll=%.2fms pitch=%.2fms yaw=%.2fms thr=%.2fms",
+                    fd[0] / 1e6, fd[1] / 1e6, fd[2] / 1e6, fd[3] / 1e6));
+                if (HidGamepadBridge.isOpen()) {
+                    long[] h = HidGamepadBridge.nativeGetHidStats();
+                    android.util.Log.d("ELRS", String.format("Direct HID: reports=%d changed=%d errors=%d mapped=%d age=%dms",
+                        h[0], h[1], h[2], h[3], h[4]));
+                }
+                if (ImuTiltSource.isRunning()) {
+                    long[] imu = ImuTiltSource.nativeGetImuStats();
+                    android.util.Log.d("ELRS", String.format("IMU tilt: events=%d roll=%.3f pitch=%.3f age=%dus",
+                        imu[0], imu[1] / 1000.0, imu[2] / 1000.0, imu[3]));
+                }
+                long[] arb = InputSources.nativeGetArbitration();
+                android.util.Log.d("ELRS", String.format(
+                    "Input arbitration: sources=%d takeover=%d winners R=%d P=%d Y=%d T=%d",
+                    arb[5], arb[0], arb[1], arb[2], arb[3], arb[4]));
+                long[] s = nativeGetTimingSyncStats();
+                android.util.Log.d("ELRS", String.format(
+                    "Timing sync: enabled=%d locked=%d rate=%.3fms phaseErr=%.1fus period=%.3fms reports=%d age=%dms",
+                    s[0], s[1], s[2] / 1e6, s[3] / 1e3, s[4] / 1e6, s[5], s[6]));
+                long[] crsf = nativeGetCrsfParserStats();
+                android.util.Log.d("ELRS", String.format("CRSF RX: frames=%d crcErrors=%d resyncs=%d discarded=%d",
+                    crsf[0], crsf[1], crsf[2], crsf[3]));
+                if (TelemetryHistory.windowStats(TelemetryHistory.FIELD_LQ, 60_000, historyStats)) {
+                    android.util.Log.d("ELRS", String.format("LQ last 60s: min=%.0f mean=%.1f max=%.0f samples=%.0f",
+                        historyStats[0], historyStats[2], historyStats[1], historyStats[3]));
+                }
+                if (UsbBridge.nativeIsUsbfsActive()) {
+                    long[] u = UsbBridge.nativeGetUsbOutStats();
+                    android.util.Log.d("ELRS", String.format(
+                        "USB OUT URBs: submitted=%d completed=%d errors=%d windowFull=%d inFlight=%d " +
+                        "latency min=%.2fms mean=%.2fms p99=%.2fms max=%.2fms",
+                        u[0], u[1], u[2], u[3], u[4], u[5] / 1e6, u[6] / 1e6, u[7] / 1e6, u[8] / 1e6));
+                    long[] in = UsbBridge.nativeGetUsbInStats();
+                    android.util.Log.d("ELRS", String.format("USB IN URBs: completed=%d errors=%d overflows=%d queued=%d",
+                        in[0], in[1], in[2], in[3]));
+                }
+            }
+
             // Check if controller is still connected AND validate it's active
             if (controllerConnected && !validateControllerActive()) {
                 android.util.Log.d("ELRS", "Controller disconnection detected by monitor");
@@ -139,10 +241,17 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
                     txRxGraph.addChannelData(lastRoll, lastPitch, lastYaw, lastThr);
                 }
                 
-                // Update packet rate display
+                // Update packet rate display (measured TX timing refreshed once per second)
+                if (++txTimingCounter >= 60) {
+                    txTimingCounter = 0;
+                    txTimingText = formatTxTiming();
+                    if (tvInputLatency != null) {
+                        tvInputLatency.setText(formatInputLatency());
+                    }
+                }
                 if (tvPacketRate != null && txRxGraph != null) {
-                    tvPacketRate.setText(String.format("TX: %.0fHz RX: %.0fHz", 
-                        txRxGraph.getTxRate(), txRxGraph.getRxRate()));
+                    tvPacketRate.setText(String.format("%s RX: %.0fHz", 
+                        txTimingText, txRxGraph.getRxRate()));
                 }
                 
                 // Update TX/RX status
@@ -178,7 +287,6 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
 
     @Override protected void onCreate(Bundle b) {
         super.onCreate(b);
-        currentInstance = this; // Set static reference for callbacks
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
         
         setContentView(R.layout.activity_main);
@@ -202,17 +310,25 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
         
         // TX Action Buttons
         btnPair = findViewById(R.id.btnPair);
+        btnTouchSticks = findViewById(R.id.btnTouchSticks);
+        btnTilt = findViewById(R.id.btnTilt);
         btnIncSignal = findViewById(R.id.btnIncSignal);
         btnDecSignal = findViewById(R.id.btnDecSignal);
         btnBind = findViewById(R.id.btnBind);
         btnReset = findViewById(R.id.btnReset);
         btnModelSelect = findViewById(R.id.btnModelSelect);
+        btnPacketRate = findViewById(R.id.btnPacketRate);
         tvDeviceDetails = findViewById(R.id.tvDeviceDetails);
         
         // TX/RX Graph
         txRxGraph = findViewById(R.id.txRxGraph);
         tvTxRxStatus = findViewById(R.id.tvTxRxStatus);
         tvPacketRate = findViewById(R.id.tvPacketRate);
+        tvInputLatency = findViewById(R.id.tvInputLatency);
+        tvRSSI = findViewById(R.id.tvRSSI);
+        tvLinkQuality = findViewById(R.id.tvLinkQuality);
+        tvBattery = findViewById(R.id.tvBattery);
+        tvFlightMode = findViewById(R.id.tvFlightMode);
         
         // 3D View and Camera
         tv3DStatus = findViewById(R.id.tv3DStatus);
@@ -224,6 +340,8 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
         setupTxActionButtons();
         setupSafetyControls();
 
+        CalibrationStore.load(this);
+
         mgr = (UsbManager)getSystemService(USB_SERVICE);
         input = (InputManager)getSystemService(INPUT_SERVICE);
         input.registerInputDeviceListener(this, new Handler(Looper.getMainLooper()));
@@ -239,6 +357,10 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
                 if (dev == null) return;
                 if (i.getBooleanExtra(UsbManager.EXTRA_PERMISSION_GRANTED, false)) {
                     usbPermissionRequested = false;
+                    if (directHidRequested && isDirectHidCandidate(dev)) {
+                        updateControllerStatus(HidGamepadBridge.open(mgr, dev));
+                        return;
+                    }
                     boolean ok = UsbBridge.open(mgr, dev);
                     updateSuperGStatus(ok);
                 } else {
@@ -284,10 +406,6 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
             checkControllerStatus();
         }, 2000); // 2 second delay
         
-        // Register telemetry callback
-        registerTelemetryCallback();
-        android.util.Log.d("ELRS", "Telemetry callback registered");
-        
         startDeviceMonitor();
 
         // TODO: Re-enable when CMake build is fixed
@@ -295,6 +413,33 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
         tvRoll.post(uiTick);
     }
 
+    private String formatTxTiming() {
+        if (!superGConnected) return "TX: --";
+        try {
+            long[] t = nativeGetTxTimingStats();
+            if (t == null || t[0] == 0 || t[2] == 0) return "TX: --";
+            long[] s = nativeGetTimingSyncStats();
+            String sync = s != null && s[1] != 0
+                ? String.format(" sync %+.0fus", s[3] / 1e3)
+                : " free";
+            return String.format("TX: %.0fHz p99 %.2fms miss %d%s",
+                1e9 / t[2], t[3] / 1e6, t[5], sync);
+        } catch (UnsatisfiedLinkError e) {
+            return "TX: --";
+        }
+    }
+
+    private String formatInputLatency() {
+        try {
+            long[] l = nativeGetInputLatencyStats();
+            if (l == null || l[0] == 0) return "IN→WIRE: --";
+            return String.format("IN→WIRE p50 %.1f p95 %.1f p99 %.1f max %.1fms",
+                l[1] / 1e6, l[2] / 1e6, l[3] / 1e6, l[4] / 1e6);
+        } catch (UnsatisfiedLinkError e) {
+            return "IN→WIRE: --";
+        }
+    }
+
     private void updateSuperGStatus(boolean connected) {
         boolean wasConnected = superGConnected;
         superGConnected = connected;
@@ -907,6 +1052,47 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
             });
         }
         
+        // On-screen sticks: overlay on the lower part of the screen, hidden until toggled
+        touchSticks = new TouchStickView(this);
+        touchSticks.setVisibility(View.GONE);
+        android.widget.FrameLayout.LayoutParams lp = new android.widget.FrameLayout.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT,
+            (int) (getResources().getDisplayMetrics().heightPixels * 0.6f),
+            Gravity.BOTTOM);
+        addContentView(touchSticks, lp);
+        if (btnTouchSticks != null) {
+            btnTouchSticks.setOnClickListener(v -> toggleTouchSticks());
+            // Long-press switches roll/pitch/yaw between spring-centre and hold
+            btnTouchSticks.setOnLongClickListener(v -> {
+                touchSpringCenter = !touchSpringCenter;
+                touchSticks.setSpringCenter(touchSpringCenter);
+                android.widget.Toast.makeText(this, touchSpringCenter ? "Touch sticks: spring centre" : "Touch sticks: hold",
+                    android.widget.Toast.LENGTH_SHORT).show();
+                return true;
+            });
+        }
+
+        // Tilt-to-fly: tap toggles, long-press recentres on the current orientation
+        if (btnTilt != null) {
+            btnTilt.setOnClickListener(v -> toggleTilt());
+            btnTilt.setOnLongClickListener(v -> {
+                ImuTiltSource.recenter();
+                android.widget.Toast.makeText(this, "Tilt recentred", android.widget.Toast.LENGTH_SHORT).show();
+                return true;
+            });
+        }
+
+        // Tapping the controller name starts a calibration run for the pad last
+        // moved; tapping again (sticks released) stores it
+        if (tvControllerName != null) {
+            tvControllerName.setOnClickListener(v -> toggleCalibration());
+        }
+
+        // Setup packet rate button: cycles through the ELRS rate profiles
+        if (btnPacketRate != null) {
+            btnPacketRate.setOnClickListener(v -> cyclePacketRate());
+        }
+        
         // Start real-time axis monitoring
         startAxisMonitoring();
     }
@@ -930,7 +1116,7 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
         
         // Update UI with command result
         String status = success ? "SUCCESS" : "FAILED";
-        String details = success ? "Command sent to ELRS TX" : "Command transmission failed";
+        String details = success ? "Command queued for ELRS TX" : "Command transmission failed (TX queue full or USB error)";
         updateCommandStatus(command, status, details);
         
         // Special handling for PAIR command
@@ -939,6 +1125,79 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
         }
     }
     
+    private int lastStickDeviceId = -1;
+    private int calibratingSource = InputSources.NONE;
+
+    private void toggleCalibration() {
+        if (calibratingSource == InputSources.NONE) {
+            calibratingSource = InputSources.forDeviceIfKnown(lastStickDeviceId);
+            if (calibratingSource == InputSources.NONE) {
+                android.widget.Toast.makeText(this, "Move a gamepad stick first", android.widget.Toast.LENGTH_SHORT).show();
+                return;
+            }
+            CalibrationStore.beginCalibration(calibratingSource);
+            android.widget.Toast.makeText(this, "Calibrating: move all sticks and triggers to their ends, release, tap again",
+                android.widget.Toast.LENGTH_LONG).show();
+            return;
+        }
+        boolean ok = CalibrationStore.finishCalibration(calibratingSource);
+        calibratingSource = InputSources.NONE;
+        android.widget.Toast.makeText(this, ok ? "Calibration saved" : "Calibration failed: no axis moved",
+            android.widget.Toast.LENGTH_SHORT).show();
+    }
+
+    private boolean touchSpringCenter = true;
+
+    private void toggleTouchSticks() {
+        boolean show = touchSticks.getVisibility() != View.VISIBLE;
+        touchSticks.setActive(show); // throttle always starts at zero
+        touchSticks.setVisibility(show ? View.VISIBLE : View.GONE);
+        btnTouchSticks.setText(show ? "TOUCH ON" : "TOUCH");
+        android.util.Log.d("ELRS", "Touch sticks " + (show ? "shown" : "hidden"));
+    }
+
+    // 30 degrees for full stick, capped at 60% so tilt alone cannot flip the quad
+    private static final float TILT_FULL_SCALE_DEG = 30f;
+    private static final float TILT_LIMIT = 0.6f;
+
+    private void toggleTilt() {
+        if (ImuTiltSource.isRunning()) {
+            ImuTiltSource.stop();
+            btnTilt.setText("TILT");
+            return;
+        }
+        ImuTiltSource.configure(TILT_FULL_SCALE_DEG, 1f, TILT_LIMIT, ImuTiltSource.BLEND_ADD);
+        boolean ok = ImuTiltSource.start();
+        btnTilt.setText(ok ? "TILT ON" : "TILT");
+        if (!ok) {
+            android.widget.Toast.makeText(this, "Tilt: direct sensor channel not supported", android.widget.Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void cyclePacketRate() {
+        try {
+            int current = nativeGetPacketRate();
+            int next = PACKET_RATES_HZ[0];
+            for (int i = 0; i < PACKET_RATES_HZ.length; i++) {
+                if (PACKET_RATES_HZ[i] == current) {
+                    next = PACKET_RATES_HZ[(i + 1) % PACKET_RATES_HZ.length];
+                    break;
+                }
+            }
+            boolean ok = nativeSetPacketRate(next);
+            String label = next == 1000 ? "F1000" : next + "HZ";
+            android.util.Log.d("ELRS", "Packet rate: " + label + (ok ? "" : " rejected"));
+            if (ok) {
+                btnPacketRate.setText(label);
+                txTimingCounter = 60; // refresh the measured rate on the next UI tick
+            }
+            updateCommandStatus("RATE " + label, ok ? "SUCCESS" : "FAILED",
+                ok ? "TX loop period updated (module sync takes precedence when locked)" : "Unsupported rate");
+        } catch (UnsatisfiedLinkError e) {
+            android.util.Log.e("ELRS", "Packet rate change failed", e);
+        }
+    }
+    
     private void updateCommandStatus(String command, String status, String details) {
         // Update device details with command status
         if (tvDeviceDetails != null) {
@@ -1189,6 +1448,8 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
     @Override protected void onResume() {
         super.onResume();
         hideSystemUi();
+        requestUnbufferedStickInput();
+        Choreographer.getInstance().postFrameCallback(telemetryFrame);
         
         // Re-establish connection if SuperG is still connected
         if (superGConnected) {
@@ -1203,6 +1464,7 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
     
     @Override protected void onPause() {
         super.onPause();
+        Choreographer.getInstance().removeFrameCallback(telemetryFrame);
         
         // CRITICAL SAFETY: Emergency stop when app goes to background
         try {
@@ -1212,6 +1474,9 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
         } catch (Exception e) {
             android.util.Log.e("ELRS", "Error during pause failsafe", e);
         }
+
+        // Keep what the drift tracker learned this session
+        CalibrationStore.persistDrift();
     }
 
     private void hideSystemUi() {
@@ -1225,6 +1490,58 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
                         | View.SYSTEM_UI_FLAG_IMMERSIVE_STICKY);
     }
 
+    // Event timestamp on the CLOCK_MONOTONIC base used by the native TX loop
+    private static long eventTimeNanos(MotionEvent e) {
+        if (android.os.Build.VERSION.SDK_INT >= 34) {
+            return e.getEventTimeNanos();
+        }
+        return e.getEventTime() * 1_000_000L;
+    }
+
+    private static long historicalEventTimeNanos(MotionEvent e, int pos) {
+        if (android.os.Build.VERSION.SDK_INT >= 34) {
+            return e.getHistoricalEventTimeNanos(pos);
+        }
+        return e.getHistoricalEventTime(pos) * 1_000_000L;
+    }
+
+    // Joystick samples are otherwise batched to the next display frame; ask for
+    // them as they arrive. Posted so it runs once the decor view is attached.
+    private void requestUnbufferedStickInput() {
+        if (android.os.Build.VERSION.SDK_INT < 30) return;
+        final View decor = getWindow().getDecorView();
+        decor.post(() -> decor.requestUnbufferedDispatch(
+            InputDevice.SOURCE_JOYSTICK | InputDevice.SOURCE_GAMEPAD));
+    }
+
+    // Maps one sample of the event (pos = history index, or CURRENT_SAMPLE) to
+    // roll, pitch, yaw, throttle.
+    private static final int CURRENT_SAMPLE = -1;
+
+    // Values are raw (clamped, no deadzone): deadzone and curves are applied by
+    // the native shaping stage. Below this an axis counts as idle when choosing
+    // between a primary axis and its fallback.
+    private static final float AXIS_IDLE = 0.02f;
+
+    private static float pickAxis(float primary, float fallback) {
+        return Math.abs(primary) < AXIS_IDLE && Math.abs(fallback) >= AXIS_IDLE ? fallback : primary;
+    }
+
+    private static void readSticks(MotionEvent e, int pos, float[] out) {
+        float rx = pickAxis(getAxis(e, MotionEvent.AXIS_X, pos), getAxis(e, MotionEvent.AXIS_RX, pos));
+        float ry = -pickAxis(getAxis(e, MotionEvent.AXIS_Y, pos), getAxis(e, MotionEvent.AXIS_RY, pos));
+        float rz = pickAxis(getAxis(e, MotionEvent.AXIS_Z, pos), getAxis(e, MotionEvent.AXIS_HAT_X, pos)); // fallback
+        float thr = (getAxis(e, MotionEvent.AXIS_RZ, pos)+1f)*0.5f;
+        if (Math.abs(thr - 0.5f) < AXIS_IDLE * 0.5f) { // some pads use LTRIGGER/RT analogs
+            float lt = (getAxis(e, MotionEvent.AXIS_LTRIGGER, pos)+1f)*0.5f;
+            float rt = (getAxis(e, MotionEvent.AXIS_RTRIGGER, pos)+1f)*0.5f;
+            if (rt > 0.05f || lt > 0.05f) thr = rt; // pick RT as throttle
+        }
+        out[0] = rx; out[1] = ry; out[2] = rz; out[3] = thr;
+    }
+
+    private final float[] stickSample = new float[4];
+
     @Override public boolean onGenericMotionEvent(MotionEvent e) {
         // If exit dialog is showing, block all motion events to prevent interference
         if (exitDialog != null && exitDialog.isShowing()) {
@@ -1283,18 +1600,8 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
                 }
             }
 
-            float rx = getAxis(e, MotionEvent.AXIS_X);
-            if (rx == 0f) rx = getAxis(e, MotionEvent.AXIS_RX);
-            float ry = -getAxis(e, MotionEvent.AXIS_Y);
-            if (ry == 0f) ry = -getAxis(e, MotionEvent.AXIS_RY);
-            float rz = getAxis(e, MotionEvent.AXIS_Z);
-            if (rz == 0f) rz = getAxis(e, MotionEvent.AXIS_HAT_X); // fallback
-            float thr = (getAxis(e, MotionEvent.AXIS_RZ)+1f)*0.5f;
-            if (thr == 0.5f) { // some pads use LTRIGGER/RT analogs
-                float lt = (getAxis(e, MotionEvent.AXIS_LTRIGGER)+1f)*0.5f;
-                float rt = (getAxis(e, MotionEvent.AXIS_RTRIGGER)+1f)*0.5f;
-                if (rt > 0.05f || lt > 0.05f) thr = rt; // pick RT as throttle
-            }
+            readSticks(e, CURRENT_SAMPLE, stickSample);
+            float rx = stickSample[0], ry = stickSample[1], rz = stickSample[2], thr = stickSample[3];
 
             // Update debug display with axes values
             if (tvGamepadAxes != null) {
@@ -1314,7 +1621,16 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
             // Only send axes to native layer if background input is enabled
             // This stops drone control when B+X exit sequence is active
             if (backgroundInputEnabled) {
-                nativeSetAxes(rx, ry, rz, thr);
+                // Each device publishes into its own source; native arbitration picks per axis
+                int source = InputSources.forDevice(e.getDeviceId());
+                lastStickDeviceId = e.getDeviceId();
+                // Batched samples first, oldest to newest, each with its own time
+                for (int h = 0; h < e.getHistorySize(); h++) {
+                    readSticks(e, h, stickSample);
+                    nativeSetAxes(source, stickSample[0], stickSample[1], stickSample[2], stickSample[3],
+                        historicalEventTimeNanos(e, h));
+                }
+                nativeSetAxes(source, rx, ry, rz, thr, eventTimeNanos(e));
             } else {
                 // Log occasionally that input is being blocked (not every frame to avoid spam)
                 if (System.currentTimeMillis() % 1000 < 50) { // Log roughly once per second
@@ -1524,12 +1840,14 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
     }
 
     private static float getAxis(MotionEvent e, int axis) {
+        return getAxis(e, axis, CURRENT_SAMPLE);
+    }
+
+    private static float getAxis(MotionEvent e, int axis, int pos) {
         InputDevice device = e.getDevice();
         InputDevice.MotionRange range = device.getMotionRange(axis, e.getSource());
         if (range == null) return 0f;
-        float v = e.getAxisValue(axis);
-        float dz = Math.max(0.05f, range.getFlat() / Math.max(1f, range.getRange()));
-        if (Math.abs(v) < dz) v = 0f;
+        float v = pos == CURRENT_SAMPLE ? e.getAxisValue(axis) : e.getHistoricalAxisValue(axis, pos);
         if (v < -1f) v = -1f; if (v > 1f) v = 1f;
         return v;
     }
@@ -1749,7 +2067,6 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
 
     @Override protected void onDestroy() {
         super.onDestroy();
-        currentInstance = null; // Clear static reference
         
         // Clean up exit dialog
         if (exitDialog != null && exitDialog.isShowing()) {
@@ -1759,6 +2076,8 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
         stopDeviceMonitor();
         try { unregisterReceiver(permRx); } catch (Exception ignored) {}
         input.unregisterInputDeviceListener(this);
+        HidGamepadBridge.close();
+        ImuTiltSource.stop();
         UsbBridge.close();
         // TODO: Re-enable when CMake build is fixed
         // nativeStop();
@@ -1783,6 +2102,36 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
         return s.toString();
     }
 
+    // Long-press on the controller indicator switches between the Android input
+    // stack and the native HID reader. The pad vanishes from InputFlinger while
+    // the interface is claimed and comes back when it is released.
+    private void toggleDirectHid() {
+        directHidRequested = !directHidRequested;
+        if (!directHidRequested) {
+            HidGamepadBridge.close();
+            android.widget.Toast.makeText(this, "Gamepad: Android input", android.widget.Toast.LENGTH_SHORT).show();
+            return;
+        }
+        for (UsbDevice d : mgr.getDeviceList().values()) {
+            if (!isDirectHidCandidate(d)) continue;
+            if (mgr.hasPermission(d)) {
+                boolean ok = HidGamepadBridge.open(mgr, d);
+                updateControllerStatus(ok);
+                android.widget.Toast.makeText(this, ok ? "Gamepad: direct HID" : "Gamepad: direct HID failed",
+                    android.widget.Toast.LENGTH_SHORT).show();
+            } else {
+                mgr.requestPermission(d, permIntent);
+            }
+            return;
+        }
+        directHidRequested = false;
+        android.widget.Toast.makeText(this, "No USB gamepad for direct HID", android.widget.Toast.LENGTH_SHORT).show();
+    }
+
+    private static boolean isDirectHidCandidate(UsbDevice d) {
+        return !hasBulkOut(d) && HidGamepadBridge.isSupported(d);
+    }
+
     // Returns true if the device exposes at least one BULK OUT endpoint
     private static boolean hasBulkOut(UsbDevice d){
         for (int i = 0; i < d.getInterfaceCount(); i++) {
@@ -1806,6 +2155,8 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
     
     @Override public void onInputDeviceRemoved(int id) {
         android.util.Log.d("ELRS", "Input device removed: " + id);
+        if (InputSources.forDeviceIfKnown(id) == takeoverSource) takeoverSource = InputSources.NONE;
+        InputSources.removeDevice(id);
         // Force controller check with explicit remove event
         boolean controller = detectController(true);
         if (!controller) {
@@ -1828,6 +2179,8 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
     
     @Override
     public boolean dispatchKeyEvent(KeyEvent event) {
+        forwardButtonEdge(event);
+        checkTakeoverGesture(event);
         // Prevent any input events from interfering with the exit dialog
         if (exitDialog != null && exitDialog.isShowing()) {
             // Check if it's B or X button press/release
@@ -1842,6 +2195,71 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
         return super.dispatchKeyEvent(event);
     }
 
+    // Takeover gesture: both stick clicks (L3 + R3) on one controller give it all
+    // axes; the same gesture on that controller again hands back to priorities.
+    private int takeoverDevice = -1, takeoverKeys = 0;
+    private int takeoverSource = InputSources.NONE;
+
+    private void checkTakeoverGesture(KeyEvent event) {
+        int bit = event.getKeyCode() == KeyEvent.KEYCODE_BUTTON_THUMBL ? 1
+                : event.getKeyCode() == KeyEvent.KEYCODE_BUTTON_THUMBR ? 2 : 0;
+        if (bit == 0 || event.getRepeatCount() > 0) return;
+        if (event.getDeviceId() != takeoverDevice) {
+            takeoverDevice = event.getDeviceId();
+            takeoverKeys = 0;
+        }
+        if (event.getAction() == KeyEvent.ACTION_UP) {
+            takeoverKeys &= ~bit;
+            return;
+        }
+        takeoverKeys |= bit;
+        if (takeoverKeys != 3) return;
+        int source = InputSources.forDevice(takeoverDevice);
+        if (source == takeoverSource) {
+            InputSources.releaseTakeover();
+            takeoverSource = InputSources.NONE;
+        } else if (InputSources.takeover(source)) {
+            takeoverSource = source;
+        }
+        android.util.Log.d("ELRS", "Input takeover: " + (takeoverSource == InputSources.NONE
+            ? "released" : "device " + takeoverDevice + " (source " + takeoverSource + ")"));
+    }
+
+    // Gamepad keys forwarded to the native button queue, index = mixer button number
+    private static final int[] MIXER_BUTTON_KEYCODES = {
+        KeyEvent.KEYCODE_BUTTON_A, KeyEvent.KEYCODE_BUTTON_B, KeyEvent.KEYCODE_BUTTON_X, KeyEvent.KEYCODE_BUTTON_Y,
+        KeyEvent.KEYCODE_BUTTON_L1, KeyEvent.KEYCODE_BUTTON_R1, KeyEvent.KEYCODE_BUTTON_L2, KeyEvent.KEYCODE_BUTTON_R2,
+        KeyEvent.KEYCODE_BUTTON_THUMBL, KeyEvent.KEYCODE_BUTTON_THUMBR, KeyEvent.KEYCODE_BUTTON_START,
+        KeyEvent.KEYCODE_BUTTON_SELECT, KeyEvent.KEYCODE_BUTTON_MODE,
+        KeyEvent.KEYCODE_DPAD_UP, KeyEvent.KEYCODE_DPAD_DOWN, KeyEvent.KEYCODE_DPAD_LEFT, KeyEvent.KEYCODE_DPAD_RIGHT
+    };
+
+    private static int mixerButtonIndex(int keyCode) {
+        for (int i = 0; i < MIXER_BUTTON_KEYCODES.length; i++) {
+            if (MIXER_BUTTON_KEYCODES[i] == keyCode) return i;
+        }
+        return -1;
+    }
+
+    // Every edge goes to the native queue with its own timestamp. Releases are
+    // always forwarded so a button can never stick on; presses only while input
+    // is enabled and no dialog owns the keys.
+    private void forwardButtonEdge(KeyEvent event) {
+        int button = mixerButtonIndex(event.getKeyCode());
+        if (button < 0) return;
+        boolean down = event.getAction() == KeyEvent.ACTION_DOWN;
+        if (down && (event.getRepeatCount() > 0 || !backgroundInputEnabled ||
+                (exitDialog != null && exitDialog.isShowing()))) return;
+        if (event.getAction() != KeyEvent.ACTION_DOWN && event.getAction() != KeyEvent.ACTION_UP) return;
+        try {
+            if (!nativePushButton(button, down, event.getEventTime() * 1_000_000L)) {
+                android.util.Log.w("ELRS", "Button queue full - edge dropped for button " + button);
+            }
+        } catch (UnsatisfiedLinkError e) {
+            // native engine not loaded
+        }
+    }
+
     private void setupSafetyControls() {
         Button btnArmDisarm = findViewById(R.id.btnArmDisarm);
         Button btnEmergencyStop = findViewById(R.id.btnEmergencyStop);
@@ -1853,6 +2271,13 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
         if (btnEmergencyStop != null) {
             btnEmergencyStop.setOnClickListener(v -> emergencyStop());
         }
+
+        if (statusController != null) {
+            statusController.setOnLongClickListener(v -> {
+                toggleDirectHid();
+                return true;
+            });
+        }
         
         // Start safety status update timer
         startSafetyStatusUpdates();
@@ -1903,6 +2328,7 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
                           "Proceed with ARMING?")
                .setIcon(android.R.drawable.ic_dialog_alert)
                .setPositiveButton("ARM", (dialog, which) -> {
+                   TelemetryHistory.reset(); // one history record per flight
                    nativeSetArmed(true);
                    updateSafetyStatus();
                    android.util.Log.d("ELRS", "Armed by user confirmation");
@@ -1983,44 +2409,27 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
         }
     }
 
-    // Static reference to current instance for callbacks
-    private static MainActivity currentInstance = null;
-
-    // Telemetry callback from native layer
-    public static void onTelemetryData(String type, int param1, int param2, int param3, int param4, int param5) {
-        MainActivity instance = currentInstance;
-        if (instance == null) return;
-        
-        // This is called from native thread, need to post to UI thread
-        if ("LINK_STATS".equals(type)) {
-            int rssi1 = param1;
-            int rssi2 = param2;
-            int lq = param3;
-            int snr = param4;
-            int txPower = param5;
-            
-            // Post to UI thread
-            android.os.Handler handler = new android.os.Handler(android.os.Looper.getMainLooper());
-            handler.post(() -> instance.updateLinkTelemetry(rssi1, rssi2, lq, snr, txPower));
-        } else if ("BATTERY".equals(type)) {
-            int voltage = param1; // mV
-            int current = param2; // mA
-            int capacity = param3; // mAh
-            
-            // Post to UI thread
-            android.os.Handler handler = new android.os.Handler(android.os.Looper.getMainLooper());
-            handler.post(() -> instance.updateBatteryTelemetry(voltage, current, capacity));
+    // Native publishes telemetry into TelemetrySnapshot; views are only touched
+    // when a group's version moved and then only if the shown value changed
+    private final Choreographer.FrameCallback telemetryFrame = new Choreographer.FrameCallback() {
+        @Override public void doFrame(long frameTimeNanos) {
+            int changed = TelemetrySnapshot.poll();
+            if ((changed & TelemetrySnapshot.CHANGED_LINK) != 0) updateLinkTelemetry();
+            if ((changed & TelemetrySnapshot.CHANGED_BATTERY) != 0) updateBatteryTelemetry();
+            if ((changed & TelemetrySnapshot.CHANGED_FLIGHT_MODE) != 0) updateFlightMode();
+            InputSources.heartbeat(frameTimeNanos);
+            Choreographer.getInstance().postFrameCallback(this);
         }
-    }
-    
-    private void updateLinkTelemetry(int rssi1, int rssi2, int lq, int snr, int txPower) {
-        TextView tvRSSI = findViewById(R.id.tvRSSI);
-        TextView tvLinkQuality = findViewById(R.id.tvLinkQuality);
-        
-        if (tvRSSI != null) {
-            int bestRSSI = Math.max(rssi1, rssi2);
-            String rssiText = String.format("RSSI: %d dBm", bestRSSI);
-            tvRSSI.setText(rssiText);
+    };
+
+    private void updateLinkTelemetry() {
+        int bestRSSI = Math.max(TelemetrySnapshot.get(TelemetrySnapshot.LINK_RSSI1),
+                                TelemetrySnapshot.get(TelemetrySnapshot.LINK_RSSI2));
+        int lq = TelemetrySnapshot.get(TelemetrySnapshot.LINK_LQ);
+
+        if (tvRSSI != null && bestRSSI != shownRssi) {
+            shownRssi = bestRSSI;
+            tvRSSI.setText("RSSI: " + bestRSSI + " dBm");
             
             // Color code based on signal strength
             if (bestRSSI > -70) {
@@ -2034,9 +2443,9 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
             }
         }
         
-        if (tvLinkQuality != null) {
-            String lqText = String.format("LQ: %d%%", lq);
-            tvLinkQuality.setText(lqText);
+        if (tvLinkQuality != null && lq != shownLq) {
+            shownLq = lq;
+            tvLinkQuality.setText("LQ: " + lq + "%");
             
             // Color code based on link quality
             if (lq > 80) {
@@ -2051,24 +2460,34 @@ public class MainActivity extends Activity implements InputManager.InputDeviceLi
         }
     }
     
-    private void updateBatteryTelemetry(int voltageMv, int currentMa, int capacityMah) {
-        TextView tvBattery = findViewById(R.id.tvBattery);
-        
-        if (tvBattery != null) {
-            float voltageV = voltageMv / 1000.0f;
-            String batteryText = String.format("BATT: %.2fV", voltageV);
-            tvBattery.setText(batteryText);
-            
-            // Color code based on voltage (assuming 4S LiPo)
-            if (voltageV > 15.6f) {
-                tvBattery.setTextColor(0xff00ff00); // Green - full
-            } else if (voltageV > 14.8f) {
-                tvBattery.setTextColor(0xffffff00); // Yellow - good
-            } else if (voltageV > 14.0f) {
-                tvBattery.setTextColor(0xffff8800); // Orange - low
-            } else {
-                tvBattery.setTextColor(0xffff0000); // Red - critical
-            }
+    private void updateBatteryTelemetry() {
+        // CRSF reports 0.1 V steps
+        int decivolts = TelemetrySnapshot.get(TelemetrySnapshot.BATTERY_MV) / 100;
+        if (tvBattery == null || decivolts == shownBatteryDv) return;
+        shownBatteryDv = decivolts;
+
+        float voltageV = decivolts / 10.0f;
+        tvBattery.setText(String.format("BATT: %.1fV", voltageV));
+        
+        // Color code based on voltage (assuming 4S LiPo)
+        if (voltageV > 15.6f) {
+            tvBattery.setTextColor(0xff00ff00); // Green - full
+        } else if (voltageV > 14.8f) {
+            tvBattery.setTextColor(0xffffff00); // Yellow - good
+        } else if (voltageV > 14.0f) {
+            tvBattery.setTextColor(0xffff8800); // Orange - low
+        } else {
+            tvBattery.setTextColor(0xffff0000); // Red - critical
+        }
+    }
+
+    private void updateFlightMode() {
+        if (tvFlightMode == null) return;
+        flightModeText.setLength(0);
+        flightModeText.append("MODE: ");
+        TelemetrySnapshot.appendFlightMode(flightModeText);
+        if (!android.text.TextUtils.equals(tvFlightMode.getText(), flightModeText)) {
+            tvFlightMode.setText(flightModeText.toString());
         }
     }
 }
@@ -0,0 +1,108 @@
+package com.example.elrsotg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Builder for the native channel mixer. apply() compiles the description into
+// the flat instruction list the TX loop runs each frame; the swap takes effect
+// between two frames. Channel values are -1..1 (172..1811 on the wire).
+// The arm channel (AUX1) and the throttle safety gate are enforced natively
+// after the mixer and cannot be overridden here.
+public final class MixerConfig {
+    // Sources - must match MixSource in native-lib.cpp
+    public static final int SRC_ROLL = 0;
+    public static final int SRC_PITCH = 1;
+    public static final int SRC_YAW = 2;
+    public static final int SRC_THROTTLE = 3; // 0..1 stick mapped to -1..1
+    private static final int SRC_BUTTON_BASE = 16;
+    private static final int SRC_SWITCH_BASE = 48;
+    public static final int SRC_ARMED = 64;
+    public static final int SRC_LINK_OK = 65;
+    public static final int SRC_LINK_QUALITY = 66;
+    public static final int SRC_ONE = 67;
+    public static final int ALWAYS = -1;
+
+    public static final int MODE_ADD = 0;
+    public static final int MODE_MULTIPLY = 1;
+    public static final int MODE_REPLACE = 2;
+
+    public static final int LS_GREATER = 0;
+    public static final int LS_LESS = 1;
+    public static final int LS_AND = 2;
+    public static final int LS_OR = 3;
+    public static final int LS_NOT = 4;
+
+    public static final int CHANNELS = 16;
+    private static final int MAX_SWITCHES = 16;
+
+    private static native boolean nativeApply(int[] switches, float[] thresholds, int[] mixes,
+                                              float[] mixParams, float[] limits);
+
+    private final List<int[]> switches = new ArrayList<>();
+    private final List<Float> thresholds = new ArrayList<>();
+    private final List<int[]> mixes = new ArrayList<>();
+    private final List<float[]> mixParams = new ArrayList<>();
+    private float[] limits;
+
+    public static int button(int index) { return SRC_BUTTON_BASE + index; }
+
+    public static int logicalSwitch(int index) { return SRC_SWITCH_BASE + index; }
+
+    // Adds a logical switch and returns its source index (usable as a source or condition).
+    // GREATER/LESS compare `a` with threshold; AND/OR combine `a` and `b`; NOT inverts `a`.
+    public int addSwitch(int function, int a, int b, float threshold) {
+        if (switches.size() >= MAX_SWITCHES) throw new IllegalStateException("too many logical switches");
+        switches.add(new int[]{function, a, b});
+        thresholds.add(threshold);
+        return logicalSwitch(switches.size() - 1);
+    }
+
+    // channel = source * weight + offset, combined per mode, while `condition` is on (or ALWAYS).
+    // A constant is a mix of SRC_ONE with weight = value.
+    public MixerConfig addMix(int channel, int source, float weight, float offset, int condition, int mode) {
+        mixes.add(new int[]{channel, source, condition, mode});
+        mixParams.add(new float[]{weight, offset});
+        return this;
+    }
+
+    public MixerConfig setLimits(int channel, float min, float max) {
+        if (limits == null) {
+            limits = new float[CHANNELS * 2];
+            for (int i = 0; i < CHANNELS; i++) { limits[i * 2] = -1f; limits[i * 2 + 1] = 1f; }
+        }
+        limits[channel * 2] = min;
+        limits[channel * 2 + 1] = max;
+        return this;
+    }
+
+    public boolean apply() {
+        int[] sw = new int[switches.size() * 3];
+        float[] th = new float[switches.size()];
+        for (int i = 0; i < switches.size(); i++) {
+            System.arraycopy(switches.get(i), 0, sw, i * 3, 3);
+            th[i] = thresholds.get(i);
+        }
+        int[] mx = new int[mixes.size() * 4];
+        float[] mp = new float[mixes.size() * 2];
+        for (int i = 0; i < mixes.size(); i++) {
+            System.arraycopy(mixes.get(i), 0, mx, i * 4, 4);
+            System.arraycopy(mixParams.get(i), 0, mp, i * 2, 2);
+        }
+        try {
+            return nativeApply(sw, th, mx, mp, limits);
+        } catch (UnsatisfiedLinkError e) {
+            android.util.Log.e("ELRS", "Mixer apply failed", e);
+            return false;
+        }
+    }
+
+    // The built-in layout: AETR on channels 1-4, AUX1 = arm, everything else centred
+    public static MixerConfig defaults() {
+        return new MixerConfig()
+            .addMix(0, SRC_ROLL, 1f, 0f, ALWAYS, MODE_ADD)
+            .addMix(1, SRC_PITCH, 1f, 0f, ALWAYS, MODE_ADD)
+            .addMix(2, SRC_THROTTLE, 1f, 0f, ALWAYS, MODE_ADD)
+            .addMix(3, SRC_YAW, 1f, 0f, ALWAYS, MODE_ADD)
+            .addMix(4, SRC_ARMED, 1f, 0f, ALWAYS, MODE_ADD);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.elrsotg;
+
+// Whole-flight telemetry history kept natively, one column per field in
+// preallocated rings with block aggregates (see "Telemetry history" in
+// native-lib.cpp). Appends happen on the native telemetry thread as frames are
+// decoded; these calls only query, so a 30 minute graph costs about one range
+// query per pixel column rather than one step per sample.
+public final class TelemetryHistory {
+    // Must match HistoryField in native-lib.cpp
+    public static final int FIELD_RSSI1 = 0;      // dBm
+    public static final int FIELD_RSSI2 = 1;      // dBm
+    public static final int FIELD_LQ = 2;         // %
+    public static final int FIELD_SNR = 3;        // dB
+    public static final int FIELD_TX_POWER = 4;   // mW
+    public static final int FIELD_VOLTAGE = 5;    // V
+    public static final int FIELD_CURRENT = 6;    // A
+    public static final int FIELD_ALTITUDE = 7;   // m, barometric
+    public static final int FIELD_GPS_LAT = 8;    // deg
+    public static final int FIELD_GPS_LON = 9;    // deg
+    public static final int FIELD_GPS_SPEED = 10; // km/h
+    public static final int FIELD_GPS_ALT = 11;   // m
+    public static final int FIELD_GPS_SATS = 12;
+
+    private static native void nativeReset();
+    private static native boolean nativeWindowStats(int field, long windowMs, float[] out);
+    private static native int nativeDownsample(int field, long windowMs, float[] minMax);
+
+    private TelemetryHistory() {}
+
+    // Starts a new record (called when arming, so a flight is one record)
+    public static void reset() {
+        try {
+            nativeReset();
+        } catch (UnsatisfiedLinkError ignored) {
+        }
+    }
+
+    // out = [min, max, mean, samples] over the last windowMs (<= 0: everything
+    // retained); false when the window holds no samples
+    public static boolean windowStats(int field, long windowMs, float[] out) {
+        try {
+            return nativeWindowStats(field, windowMs, out);
+        } catch (UnsatisfiedLinkError e) {
+            return false;
+        }
+    }
+
+    // Fills minMax with [min, max] for minMax.length / 2 equal time buckets over
+    // the last windowMs, oldest first, NaN where a bucket is empty. Size it to
+    // the graph's pixel width. Returns the number of non-empty buckets.
+    public static int downsample(int field, long windowMs, float[] minMax) {
+        try {
+            return nativeDownsample(field, windowMs, minMax);
+        } catch (UnsatisfiedLinkError e) {
+            return 0;
+        }
+    }
+}
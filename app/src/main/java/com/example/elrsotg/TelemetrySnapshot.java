@@ -0,0 +1,145 @@
+package com.example.elrsotg;
+
+import dalvik.annotation.optimization.FastNative;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Latest decoded telemetry, written by the native telemetry thread straight into
+// a direct buffer (read by JNI_OnLoad via GetDirectBufferAddress) and polled by
+// the UI once per display frame. No thread attach, callback or allocation per
+// telemetry frame on either side.
+//
+// Layout: 32-bit words in native byte order; must match TelemetryWord in
+// native-lib.cpp. Word 0 is a seqlock sequence (odd while native is writing);
+// the UI copies through nativeCopySnapshot, which reads it with acquire
+// ordering on every API level.
+// Each frame type has a fixed group [updateNs (long), version, values...];
+// updateNs is on the System.nanoTime() clock.
+public final class TelemetrySnapshot {
+    // Groups (word index of the group header)
+    public static final int LINK = 2, BATTERY = 16, GPS = 24, VARIO = 34, BARO = 38,
+            ATTITUDE = 44, LINK_RX = 50, LINK_TX = 58, FLIGHT_MODE = 68, ELRS_STATUS = 76;
+    private static final int[] GROUPS = {LINK, BATTERY, GPS, VARIO, BARO, ATTITUDE, LINK_RX, LINK_TX,
+            FLIGHT_MODE, ELRS_STATUS};
+    private static final int HEADER = 3;
+
+    // poll() result bits, in GROUPS order
+    public static final int CHANGED_LINK = 1, CHANGED_BATTERY = 1 << 1, CHANGED_GPS = 1 << 2,
+            CHANGED_VARIO = 1 << 3, CHANGED_BARO = 1 << 4, CHANGED_ATTITUDE = 1 << 5, CHANGED_LINK_RX = 1 << 6,
+            CHANGED_LINK_TX = 1 << 7, CHANGED_FLIGHT_MODE = 1 << 8, CHANGED_ELRS_STATUS = 1 << 9;
+
+    // Values (word index): 0x14 link statistics
+    public static final int LINK_RSSI1 = LINK + HEADER;       // dBm
+    public static final int LINK_RSSI2 = LINK + HEADER + 1;   // dBm
+    public static final int LINK_LQ = LINK + HEADER + 2;      // %
+    public static final int LINK_SNR = LINK + HEADER + 3;     // dB
+    public static final int LINK_ANTENNA = LINK + HEADER + 4;
+    public static final int LINK_RF_MODE = LINK + HEADER + 5;
+    public static final int LINK_TX_POWER_MW = LINK + HEADER + 6;
+    public static final int LINK_DOWN_RSSI = LINK + HEADER + 7;
+    public static final int LINK_DOWN_LQ = LINK + HEADER + 8;
+    public static final int LINK_DOWN_SNR = LINK + HEADER + 9;
+    public static final int LINK_OK = LINK + HEADER + 10;
+    // 0x08 battery
+    public static final int BATTERY_MV = BATTERY + HEADER;
+    public static final int BATTERY_MA = BATTERY + HEADER + 1;
+    public static final int BATTERY_USED_MAH = BATTERY + HEADER + 2;
+    public static final int BATTERY_REMAINING = BATTERY + HEADER + 3; // %
+    // 0x02 GPS
+    public static final int GPS_LAT = GPS + HEADER;           // 1e-7 deg
+    public static final int GPS_LON = GPS + HEADER + 1;       // 1e-7 deg
+    public static final int GPS_SPEED = GPS + HEADER + 2;     // 0.1 km/h
+    public static final int GPS_HEADING = GPS + HEADER + 3;   // 0.01 deg
+    public static final int GPS_ALTITUDE = GPS + HEADER + 4;  // m
+    public static final int GPS_SATELLITES = GPS + HEADER + 5;
+    // 0x07 vario, 0x09 barometric altitude
+    public static final int VARIO_CMS = VARIO + HEADER;
+    public static final int BARO_ALTITUDE_DM = BARO + HEADER;
+    public static final int BARO_VARIO_CMS = BARO + HEADER + 1;
+    // 0x1E attitude, 1e-4 rad
+    public static final int ATTITUDE_PITCH = ATTITUDE + HEADER;
+    public static final int ATTITUDE_ROLL = ATTITUDE + HEADER + 1;
+    public static final int ATTITUDE_YAW = ATTITUDE + HEADER + 2;
+    // 0x1C / 0x1D link RX / TX: add to LINK_RX or LINK_TX
+    public static final int LINK_ID_RSSI = HEADER;            // dBm
+    public static final int LINK_ID_RSSI_PCT = HEADER + 1;
+    public static final int LINK_ID_LQ = HEADER + 2;
+    public static final int LINK_ID_SNR = HEADER + 3;
+    public static final int LINK_ID_POWER_DBM = HEADER + 4;
+    public static final int LINK_ID_FPS = HEADER + 5;         // LINK_TX only
+    // 0x21 flight mode text, 0x2E ELRS status
+    public static final int FLIGHT_MODE_TEXT = FLIGHT_MODE + HEADER;
+    private static final int FLIGHT_MODE_BYTES = 16;
+    public static final int ELRS_BAD_PACKETS = ELRS_STATUS + HEADER;
+    public static final int ELRS_GOOD_PACKETS = ELRS_STATUS + HEADER + 1;
+    public static final int ELRS_FLAGS = ELRS_STATUS + HEADER + 2;
+    public static final int ELRS_MESSAGE_TEXT = ELRS_STATUS + HEADER + 3;
+    private static final int ELRS_MESSAGE_BYTES = 32;
+
+    private static final int WORDS = 96;
+
+    private static final ByteBuffer buffer =
+            ByteBuffer.allocateDirect(WORDS * 4).order(ByteOrder.nativeOrder());
+    // UI thread only
+    private static final byte[] scratch = new byte[WORDS * 4];
+    private static final ByteBuffer scratchView = ByteBuffer.wrap(scratch).order(ByteOrder.nativeOrder());
+    private static final ByteBuffer values = ByteBuffer.allocate(WORDS * 4).order(ByteOrder.nativeOrder());
+    private static int lastSeq;
+
+    // Copies the buffer into out under the seqlock; returns the sequence
+    // copied, or -1 if nothing new or a publish overlapped. Registered.
+    @FastNative
+    private static native int nativeCopySnapshot(byte[] out, int lastSeq);
+
+    private TelemetrySnapshot() {}
+
+    // Takes a consistent copy if native published since the last call and
+    // returns CHANGED_* bits for the groups whose version moved. A read
+    // that overlaps a publish is dropped and retried on the next frame.
+    public static int poll() {
+        int seq;
+        try {
+            seq = nativeCopySnapshot(scratch, lastSeq);
+        } catch (UnsatisfiedLinkError e) {
+            return 0;
+        }
+        if (seq == -1) return 0; // sequences are even, so -1 is never one
+        lastSeq = seq;
+
+        int changed = 0;
+        for (int i = 0; i < GROUPS.length; i++) {
+            int version = (GROUPS[i] + 2) * 4;
+            if (values.getInt(version) != scratchView.getInt(version)) changed |= 1 << i;
+        }
+        System.arraycopy(scratch, 0, values.array(), 0, scratch.length);
+        return changed;
+    }
+
+    // Value of a word as of the last successful poll()
+    public static int get(int word) {
+        return values.getInt(word * 4);
+    }
+
+    // When the group was last decoded (System.nanoTime() base); 0 = never
+    public static long updateNs(int group) {
+        return values.getLong(group * 4);
+    }
+
+    public static boolean hasData(int group) {
+        return values.getInt((group + 2) * 4) != 0;
+    }
+
+    // Appends a text field to `out` without allocating
+    public static void appendFlightMode(StringBuilder out) {
+        appendText(FLIGHT_MODE_TEXT, FLIGHT_MODE_BYTES, out);
+    }
+
+    public static void appendElrsMessage(StringBuilder out) {
+        appendText(ELRS_MESSAGE_TEXT, ELRS_MESSAGE_BYTES, out);
+    }
+
+    private static void appendText(int word, int maxBytes, StringBuilder out) {
+        byte[] b = values.array();
+        for (int i = word * 4, end = i + maxBytes; i < end && b[i] != 0; i++) out.append((char) (b[i] & 0xFF));
+    }
+}
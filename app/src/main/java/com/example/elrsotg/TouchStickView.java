@@ -0,0 +1,259 @@
+package com.example.elrsotg;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+import dalvik.annotation.optimization.FastNative;
+
+// On-screen dual sticks (mode 2: left = yaw/throttle, right = roll/pitch) for
+// emergency or travel use. Each half of the view tracks one pointer; a stick is
+// centred where the finger lands, so touching down never jumps an axis.
+// Touch events are dispatched unbuffered and every historical sample is pushed
+// with its own timestamp. Nothing here allocates per MotionEvent.
+public class TouchStickView extends View {
+    // Registered in JNI_OnLoad; same path into the stick history as nativeSetAxes
+    @FastNative
+    private static native void nativeSetTouchAxes(int source, float roll, float pitch, float yaw, float thr,
+                                                  long eventTimeNs);
+    // [samples, p50, p95, p99, max] in ns, written into `out`
+    private static native void nativeReadTouchLatencyStats(long[] out);
+
+    private static final int LEFT = 0, RIGHT = 1;
+    private static final long STATS_REFRESH_MS = 500;
+
+    private final Paint basePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint knobPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    // Per stick: active pointer id (-1 = released), centre and knob position in px
+    private final int[] pointerId = {-1, -1};
+    private final float[] centreX = new float[2], centreY = new float[2];
+    private final float[] knobX = new float[2], knobY = new float[2];
+
+    private float roll, pitch, yaw, thr;
+    private float thrAtDown;          // throttle-hold: value when the left finger landed
+    private boolean springCenter = true;
+    private boolean throttleHold = true;
+    private float radius = 1f;
+    private int source = InputSources.NONE;
+
+    private final long[] latency = new long[5];
+    private final StringBuilder latencyText = new StringBuilder(64);
+    private long lastStatsMs;
+
+    public TouchStickView(Context context) {
+        super(context);
+        init();
+    }
+
+    public TouchStickView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public TouchStickView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    private void init() {
+        basePaint.setColor(0x55FFFFFF);
+        basePaint.setStyle(Paint.Style.STROKE);
+        basePaint.setStrokeWidth(3f);
+        knobPaint.setColor(0xAA00FF88);
+        knobPaint.setStyle(Paint.Style.FILL);
+        textPaint.setColor(0xFFFFFFFF);
+        textPaint.setTextSize(24f);
+        textPaint.setTypeface(android.graphics.Typeface.DEFAULT);
+    }
+
+    // Roll, pitch and yaw return to centre on release (otherwise they hold)
+    public void setSpringCenter(boolean spring) {
+        springCenter = spring;
+    }
+
+    // Throttle holds its last value on release; off = springs back to mid-stick
+    public void setThrottleHold(boolean hold) {
+        throttleHold = hold;
+        if (!hold && pointerId[LEFT] < 0) thr = 0.5f;
+    }
+
+    // Shown sticks are an input source (above gamepads); hidden ones are not
+    public void setActive(boolean active) {
+        if (active && source == InputSources.NONE) {
+            source = InputSources.register(InputSources.PRIORITY_TOUCH, InputSources.AXES_ALL, 0, false);
+            reset();
+        } else if (!active && source != InputSources.NONE) {
+            InputSources.unregister(source);
+            source = InputSources.NONE;
+        }
+    }
+
+    // Throttle starts at zero each time the sticks are shown
+    public void reset() {
+        pointerId[LEFT] = pointerId[RIGHT] = -1;
+        roll = pitch = yaw = 0f;
+        thr = throttleHold ? 0f : 0.5f;
+        invalidate();
+    }
+
+    @Override protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        radius = Math.max(1f, Math.min(w / 4f, h / 2f) * 0.8f);
+        for (int s = LEFT; s <= RIGHT; s++) {
+            centreX[s] = knobX[s] = w * (s == LEFT ? 0.25f : 0.75f);
+            centreY[s] = knobY[s] = h * 0.5f;
+        }
+    }
+
+    @Override public boolean onTouchEvent(MotionEvent e) {
+        if (!isEnabled() || source == InputSources.NONE) return false;
+        int action = e.getActionMasked();
+        int index = e.getActionIndex();
+        long eventNs = eventTimeNanos(e);
+
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+                // Deliver every move as it arrives instead of once per vsync
+                requestUnbufferedDispatch(e);
+                // fall through
+            case MotionEvent.ACTION_POINTER_DOWN: {
+                int side = e.getX(index) < getWidth() * 0.5f ? LEFT : RIGHT;
+                if (pointerId[side] >= 0) return true; // one finger per stick
+                pointerId[side] = e.getPointerId(index);
+                centreX[side] = knobX[side] = e.getX(index);
+                centreY[side] = knobY[side] = e.getY(index);
+                if (side == LEFT) thrAtDown = thr;
+                push(eventNs);
+                break;
+            }
+            case MotionEvent.ACTION_MOVE: {
+                for (int h = 0; h < e.getHistorySize(); h++) {
+                    for (int s = LEFT; s <= RIGHT; s++) {
+                        int p = pointerId[s] >= 0 ? e.findPointerIndex(pointerId[s]) : -1;
+                        if (p >= 0) track(s, e.getHistoricalX(p, h), e.getHistoricalY(p, h));
+                    }
+                    push(historicalEventTimeNanos(e, h));
+                }
+                for (int s = LEFT; s <= RIGHT; s++) {
+                    int p = pointerId[s] >= 0 ? e.findPointerIndex(pointerId[s]) : -1;
+                    if (p >= 0) track(s, e.getX(p), e.getY(p));
+                }
+                push(eventNs);
+                break;
+            }
+            case MotionEvent.ACTION_POINTER_UP:
+            case MotionEvent.ACTION_UP:
+                release(e.getPointerId(index));
+                push(eventNs);
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                release(pointerId[LEFT]);
+                release(pointerId[RIGHT]);
+                push(eventNs);
+                break;
+            default:
+                return true;
+        }
+        postInvalidateOnAnimation();
+        return true;
+    }
+
+    private void track(int side, float x, float y) {
+        float dx = (x - centreX[side]) / radius;
+        float dy = (centreY[side] - y) / radius;
+        float len = (float) Math.sqrt(dx * dx + dy * dy);
+        if (len > 1f) { dx /= len; dy /= len; }
+        knobX[side] = centreX[side] + dx * radius;
+        knobY[side] = centreY[side] - dy * radius;
+        if (side == LEFT) {
+            yaw = dx;
+            // Hold: drag moves throttle relative to where it was; spring: mid-stick is 0.5
+            thr = clamp01(throttleHold ? thrAtDown + dy * 0.5f : 0.5f + dy * 0.5f);
+        } else {
+            roll = dx;
+            pitch = dy;
+        }
+    }
+
+    private void release(int id) {
+        for (int s = LEFT; s <= RIGHT; s++) {
+            if (id < 0 || pointerId[s] != id) continue;
+            pointerId[s] = -1;
+            if (s == RIGHT && springCenter) {
+                roll = pitch = 0f;
+                knobX[s] = centreX[s];
+                knobY[s] = centreY[s];
+            } else if (s == LEFT) {
+                if (springCenter) { yaw = 0f; knobX[s] = centreX[s]; }
+                if (!throttleHold) { thr = 0.5f; knobY[s] = centreY[s]; }
+            }
+        }
+    }
+
+    private void push(long eventNs) {
+        try {
+            nativeSetTouchAxes(source, roll, pitch, yaw, thr, eventNs);
+        } catch (UnsatisfiedLinkError ignored) {
+        }
+    }
+
+    private static float clamp01(float v) {
+        return v < 0f ? 0f : (v > 1f ? 1f : v);
+    }
+
+    // Same CLOCK_MONOTONIC base as MainActivity.eventTimeNanos
+    private static long eventTimeNanos(MotionEvent e) {
+        if (Build.VERSION.SDK_INT >= 34) return e.getEventTimeNanos();
+        return e.getEventTime() * 1_000_000L;
+    }
+
+    private static long historicalEventTimeNanos(MotionEvent e, int pos) {
+        if (Build.VERSION.SDK_INT >= 34) return e.getHistoricalEventTimeNanos(pos);
+        return e.getHistoricalEventTime(pos) * 1_000_000L;
+    }
+
+    @Override protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        for (int s = LEFT; s <= RIGHT; s++) {
+            canvas.drawCircle(centreX[s], centreY[s], radius, basePaint);
+            canvas.drawCircle(knobX[s], knobY[s], radius * 0.25f, knobPaint);
+        }
+
+        long now = android.os.SystemClock.uptimeMillis();
+        if (now - lastStatsMs >= STATS_REFRESH_MS) {
+            lastStatsMs = now;
+            updateLatencyText();
+        }
+        canvas.drawText(latencyText, 0, latencyText.length(), 16f, getHeight() - 16f, textPaint);
+    }
+
+    // "TOUCH→WIRE p50 x.x p99 x.x ms", built in place
+    private void updateLatencyText() {
+        latencyText.setLength(0);
+        latencyText.append("TOUCH→WIRE ");
+        try {
+            nativeReadTouchLatencyStats(latency);
+        } catch (UnsatisfiedLinkError e) {
+            latency[0] = 0;
+        }
+        if (latency[0] == 0) {
+            latencyText.append("--");
+            return;
+        }
+        latencyText.append("p50 ");
+        appendMs(latency[1]);
+        latencyText.append(" p99 ");
+        appendMs(latency[3]);
+        latencyText.append("ms");
+    }
+
+    private void appendMs(long ns) {
+        long tenths = ns / 100_000;
+        latencyText.append(tenths / 10).append('.').append(tenths % 10);
+    }
+}
@@ -27,6 +27,15 @@ public class TxRxGraphView extends View {
     private float txRate = 0f;
     private float rxRate = 0f;
 
+    // RX trace from real telemetry: link quality over the last 30 minutes, one
+    // min/max bucket per pixel column from TelemetryHistory. Falls back to the
+    // simulated RX line until there is any link history.
+    private static final long LQ_WINDOW_MS = 30 * 60 * 1000L;
+    private Paint lqPaint;
+    private float[] lqBuckets = new float[0];
+    private float[] lqLines = new float[0];
+    private boolean lqShown;
+
     public TxRxGraphView(Context context) {
         super(context);
         init();
@@ -56,6 +65,10 @@ public class TxRxGraphView extends View {
         rxPaint.setStyle(Paint.Style.STROKE);
         rxPaint.setAntiAlias(true);
 
+        lqPaint = new Paint(rxPaint);
+        lqPaint.setStrokeWidth(1f);
+        lqPaint.setAntiAlias(false);
+
         gridPaint = new Paint();
         gridPaint.setColor(0x44444444);
         gridPaint.setStrokeWidth(1f);
@@ -100,7 +113,8 @@ public class TxRxGraphView extends View {
         
         // Draw TX and RX lines
         drawDataLine(canvas, txData, txPaint, width, height);
-        drawDataLine(canvas, rxData, rxPaint, width, height);
+        lqShown = drawLqHistory(canvas, width, height);
+        if (!lqShown) drawDataLine(canvas, rxData, rxPaint, width, height);
         
         // Draw labels
         drawLabels(canvas, width, height);
@@ -113,7 +127,7 @@ public class TxRxGraphView extends View {
         
         // RX label (bottom-left, blue)
         textPaint.setColor(0xFF0088FF);
-        canvas.drawText("RX", 10, height - 10, textPaint);
+        canvas.drawText(lqShown ? "LQ 30m" : "RX", 10, height - 10, textPaint);
         
         // Rate labels
         textPaint.setColor(0xFFFFFFFF);
@@ -135,6 +149,33 @@ public class TxRxGraphView extends View {
         }
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        lqBuckets = new float[w * 2];
+        lqLines = new float[w * 4];
+    }
+
+    // One vertical min..max segment per column; empty buckets leave a gap
+    private boolean drawLqHistory(Canvas canvas, int width, int height) {
+        if (width == 0 || TelemetryHistory.downsample(TelemetryHistory.FIELD_LQ, LQ_WINDOW_MS, lqBuckets) == 0) {
+            return false;
+        }
+        int n = 0;
+        for (int x = 0; x < width; x++) {
+            float min = lqBuckets[2 * x], max = lqBuckets[2 * x + 1];
+            if (Float.isNaN(min)) continue;
+            float yMin = height - Math.min(min, maxValue) / maxValue * height;
+            float yMax = height - Math.min(max, maxValue) / maxValue * height;
+            lqLines[n++] = x;
+            lqLines[n++] = yMin;
+            lqLines[n++] = x;
+            lqLines[n++] = Math.min(yMax, yMin - 1f); // at least one pixel tall
+        }
+        canvas.drawLines(lqLines, 0, n, lqPaint);
+        return true;
+    }
+
     private void drawDataLine(Canvas canvas, List<Float> data, Paint paint, int width, int height) {
         if (data.size() < 2) return;
         
@@ -4,13 +4,65 @@ package com.example.elrsotg;
 import android.hardware.usb.*;
 
 public class UsbBridge {
-    private static UsbDeviceConnection conn;
-    private static UsbEndpoint epOut;
-    private static UsbEndpoint epIn;
+    private static volatile UsbDeviceConnection conn;
+    private static volatile UsbEndpoint epOut;
+    private static volatile UsbEndpoint epIn;
     private static UsbInterface claimed;
 
+    // The OUT and IN endpoints are independent, so reads and writes use separate
+    // locks: a telemetry read blocked for its full timeout must not hold up RC
+    // frame writes. open/close take both (write first, then read).
+    private static final Object writeLock = new Object();
+    private static final Object readLock = new Object();
+
+    // Native usbfs transport: the C++ engine issues bulk transfers on the
+    // connection's file descriptor itself, so RC frames never cross JNI.
+    // writeSlot()/readSlot() below remain as the fallback path.
+    private static volatile boolean nativeTransportEnabled = true;
+
+    private static native void nativeAttachUsbfs(int fd, int epOut, int epIn, int maxPacketOut, int maxPacketIn);
+    private static native void nativeDetachUsbfs();
+    public static native boolean nativeIsUsbfsActive();
+
+    // Asynchronous URB pipeline for bulk OUT (native transport only)
+    private static native void nativeSetAsyncOut(boolean enabled);
+    // [submitted, completed, errors, windowFull, inFlight, minNs, meanNs, p99Ns, maxNs]
+    public static native long[] nativeGetUsbOutStats();
+    // Queued bulk IN reads (native transport): [completed, errors, overflows, queued]
+    public static native long[] nativeGetUsbInStats();
+
+    // Frame ring shared with native code (read by JNI_OnLoad via GetDirectBufferAddress).
+    // Native writes outgoing frames into TX slots and reads incoming bytes from RX
+    // slots; each side keeps its own view so positions never race, and transfers go
+    // through reused arrays, so the JNI transport allocates nothing per frame.
+    // Layout must match kRingSlotSize/kRingTxSlots/kRingRxSlots in native-lib.cpp.
+    private static final int RING_SLOT_SIZE = 256;
+    private static final int RING_TX_SLOTS = 8;
+    private static final int RING_RX_SLOTS = 2;
+    private static final java.nio.ByteBuffer frameRing =
+            java.nio.ByteBuffer.allocateDirect(RING_SLOT_SIZE * (RING_TX_SLOTS + RING_RX_SLOTS));
+    private static final java.nio.ByteBuffer txView = frameRing.duplicate();
+    private static final java.nio.ByteBuffer rxView = frameRing.duplicate();
+    private static final byte[] writeScratch = new byte[RING_SLOT_SIZE];
+    private static final byte[] readScratch = new byte[RING_SLOT_SIZE];
+
+    // Time writers spent waiting to enter the write path
+    private static final java.util.concurrent.atomic.AtomicLong writeWaitTotalNs =
+            new java.util.concurrent.atomic.AtomicLong();
+    private static volatile long writeWaitMaxNs = 0;
+    private static final java.util.concurrent.atomic.AtomicLong writeWaitCount =
+            new java.util.concurrent.atomic.AtomicLong();
+
     public static synchronized boolean open(UsbManager mgr, UsbDevice dev){
-        close();
+        synchronized (writeLock) {
+            synchronized (readLock) {
+                return openLocked(mgr, dev);
+            }
+        }
+    }
+
+    private static boolean openLocked(UsbManager mgr, UsbDevice dev){
+        closeLocked();
         conn = mgr.openDevice(dev);
         if (conn == null) return false;
 
@@ -49,15 +101,29 @@ public class UsbBridge {
                 // DTR/RTS ON (0x0101 | 0x0202)
                 conn.controlTransfer(0x41, 0x07, 0x0303, claimed.getId(), null, 0, 1000);
 
+                if (nativeTransportEnabled) {
+                    nativeAttachUsbfs(conn.getFileDescriptor(), epOut.getAddress(), epIn.getAddress(),
+                            epOut.getMaxPacketSize(), epIn.getMaxPacketSize());
+                }
                 return true;
             }
         }
-        close();
+        closeLocked();
         return false;
     }
 
     public static synchronized void close(){
+        synchronized (writeLock) {
+            synchronized (readLock) {
+                closeLocked();
+            }
+        }
+    }
+
+    private static void closeLocked(){
         if (conn != null) {
+            // Native side must stop using the fd before it is closed
+            nativeDetachUsbfs();
             try { if (claimed != null) conn.releaseInterface(claimed); } catch (Exception ignored) {}
             try { conn.close(); } catch (Exception ignored) {}
         }
@@ -67,20 +133,71 @@ public class UsbBridge {
         conn = null;
     }
 
-    public static synchronized boolean isOpen() {
+    public static boolean isOpen() {
         return conn != null && epOut != null && epIn != null;
     }
 
-    // JNI entry point to write bytes
-    public static synchronized int write(byte[] data, int len, int timeoutMs){
-        if (conn == null || epOut == null) return -1;
-        if (len > data.length) len = data.length;
-        return conn.bulkTransfer(epOut, data, len, timeoutMs);
+    // JNI entry point to write the frame native code placed in TX ring slot `slot`
+    public static int writeSlot(int slot, int len, int timeoutMs){
+        long t0 = System.nanoTime();
+        synchronized (writeLock) {
+            recordWriteWait(System.nanoTime() - t0);
+            UsbDeviceConnection c = conn;
+            UsbEndpoint ep = epOut;
+            if (c == null || ep == null) return -1;
+            if (slot < 0 || slot >= RING_TX_SLOTS) return -1;
+            if (len > RING_SLOT_SIZE) len = RING_SLOT_SIZE;
+            txView.position(slot * RING_SLOT_SIZE);
+            txView.get(writeScratch, 0, len);
+            return c.bulkTransfer(ep, writeScratch, len, timeoutMs);
+        }
+    }
+
+    // JNI entry point to read up to `len` telemetry bytes into RX ring slot `slot`
+    public static int readSlot(int slot, int len, int timeoutMs){
+        synchronized (readLock) {
+            UsbDeviceConnection c = conn;
+            UsbEndpoint ep = epIn;
+            if (c == null || ep == null) return -1;
+            if (slot < 0 || slot >= RING_RX_SLOTS) return -1;
+            if (len > RING_SLOT_SIZE) len = RING_SLOT_SIZE;
+            int n = c.bulkTransfer(ep, readScratch, len, timeoutMs);
+            if (n > 0) {
+                rxView.position((RING_TX_SLOTS + slot) * RING_SLOT_SIZE);
+                rxView.put(readScratch, 0, n);
+            }
+            return n;
+        }
+    }
+
+    // Selects the transport used for the next open(); takes effect on reconnect
+    public static void setNativeTransportEnabled(boolean enabled) {
+        nativeTransportEnabled = enabled;
+    }
+
+    public static boolean isNativeTransportEnabled() {
+        return nativeTransportEnabled;
+    }
+
+    // Pipelined URB submission for frames on the native transport; takes effect immediately
+    public static void setAsyncOutEnabled(boolean enabled) {
+        nativeSetAsyncOut(enabled);
+    }
+
+    private static void recordWriteWait(long ns) {
+        writeWaitTotalNs.addAndGet(ns);
+        writeWaitCount.incrementAndGet();
+        if (ns > writeWaitMaxNs) writeWaitMaxNs = ns;
+    }
+
+    // Writer lock-wait counters: [writes, totalWaitNs, maxWaitNs]
+    public static long[] getWriteWaitStats() {
+        return new long[]{ writeWaitCount.get(), writeWaitTotalNs.get(), writeWaitMaxNs };
     }
 
-    // JNI entry point to read bytes for telemetry
-    public static synchronized int read(byte[] buffer, int timeoutMs){
-        if (conn == null || epIn == null) return -1;
-        return conn.bulkTransfer(epIn, buffer, buffer.length, timeoutMs);
+    public static void resetWriteWaitStats() {
+        writeWaitCount.set(0);
+        writeWaitTotalNs.set(0);
+        writeWaitMaxNs = 0;
     }
 }
@@ -0,0 +1,15 @@
+package dalvik.annotation.optimization;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Compile-time copy of the platform annotation, which is not in the public SDK.
+// ART matches it by descriptor on native methods (API 26+) and skips the
+// thread state transition on each call. The native side must be short and
+// non-blocking; if the annotation is ignored the call is simply regular JNI.
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface FastNative {
+}